@@ -2,7 +2,6 @@ package model;
 
 import java.util.Comparator;
 import java.util.Locale;
-import java.util.UUID;
 
 /**
  * An event in a person's life, containing type of event, location, year, and associated user
@@ -148,7 +147,7 @@ public class Event implements Comparable<Event> {
      */
     @Override
     public int hashCode() {
-        return UUID.fromString(this.eventID).hashCode();
+        return this.eventID.hashCode();
     }
 
     @Override
@@ -1,7 +1,5 @@
 package model;
 
-import java.util.UUID;
-
 /**
  * Person in the family map
  */
@@ -145,6 +143,6 @@ public class Person {
 
     @Override
     public int hashCode() {
-        return UUID.fromString(this.personID).hashCode();
+        return this.personID.hashCode();
     }
 }
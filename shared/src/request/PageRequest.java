@@ -0,0 +1,259 @@
+package request;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Request for one page of a user's persons or events, read from the query string of /person or /event.
+ * Pages are read in key order (persons by ID, events by year then ID) and each response carries the cursor
+ * for the next page, so every request costs at most one page however large the tree.
+ */
+public class PageRequest {
+    /**
+     * Page size used when a query string is given without a limit
+     */
+    public static final int DEFAULT_LIMIT = 500;
+    /**
+     * Largest page a client may ask for
+     */
+    public static final int MAX_LIMIT = 5000;
+    public static final List<String> PERSON_FIELDS = List.of("personID", "associatedUsername", "firstName",
+            "lastName", "gender", "fatherID", "motherID", "spouseID");
+    public static final List<String> EVENT_FIELDS = List.of("eventID", "associatedUsername", "personID",
+            "latitude", "longitude", "country", "city", "eventType", "year");
+
+    /**
+     * Maximum number of rows to return
+     */
+    private int limit = DEFAULT_LIMIT;
+    /**
+     * Whether the page is of events, whose cursor key is "year:eventID"
+     */
+    private boolean events;
+    /**
+     * Key of the last row of the previous page, null for the first page
+     */
+    private String after;
+    /**
+     * Year of the last event of the previous page, null for the first page or a page of persons
+     */
+    private Integer afterYear;
+    /**
+     * ID of the last event of the previous page, null for the first page or a page of persons
+     */
+    private String afterEventID;
+    /**
+     * Fields to include in each row, null for all
+     */
+    private Set<String> fields;
+    /**
+     * Only events of this type
+     */
+    private String eventType;
+    /**
+     * Only events of this person
+     */
+    private String personID;
+    /**
+     * Only events in or after this year
+     */
+    private Integer yearFrom;
+    /**
+     * Only events in or before this year
+     */
+    private Integer yearTo;
+
+    /**
+     * Create new PageRequest for the first page with no filters
+     */
+    public PageRequest() {}
+
+    /**
+     * Parse the query string of a /person request
+     * @param query Raw (still percent-encoded) query string
+     * @return page request
+     * @throws RequestException on an unknown parameter or invalid value
+     */
+    public static PageRequest forPersons(String query) throws RequestException {
+        return parse(query, PERSON_FIELDS, false);
+    }
+
+    /**
+     * Parse the query string of an /event request
+     * @param query Raw (still percent-encoded) query string
+     * @return page request
+     * @throws RequestException on an unknown parameter or invalid value
+     */
+    public static PageRequest forEvents(String query) throws RequestException {
+        return parse(query, EVENT_FIELDS, true);
+    }
+
+    private static PageRequest parse(String query, List<String> fieldNames, boolean events)
+            throws RequestException {
+        PageRequest request = new PageRequest();
+        request.events = events;
+        if (query == null || query.isEmpty()) {
+            return request;
+        }
+        for (String param : query.split("&")) {
+            if (param.isEmpty()) {
+                continue;
+            }
+            int split = param.indexOf('=');
+            String name = URLDecoder.decode(split < 0 ? param : param.substring(0, split), StandardCharsets.UTF_8);
+            String value = split < 0 ? "" : URLDecoder.decode(param.substring(split + 1), StandardCharsets.UTF_8);
+            switch (name) {
+                case "limit" -> request.setLimit(parseInt(name, value));
+                case "cursor" -> request.setCursor(value);
+                case "fields" -> request.setFields(value, fieldNames);
+                default -> {
+                    if (!events) {
+                        throw new RequestException("Error: Unknown parameter " + name);
+                    }
+                    switch (name) {
+                        case "eventType" -> request.eventType = value;
+                        case "personID" -> request.personID = value;
+                        case "yearFrom" -> request.yearFrom = parseInt(name, value);
+                        case "yearTo" -> request.yearTo = parseInt(name, value);
+                        default -> throw new RequestException("Error: Unknown parameter " + name);
+                    }
+                }
+            }
+        }
+        return request;
+    }
+
+    /**
+     * Make the opaque cursor clients pass back for the next page
+     * @param key Key of the last row of a page
+     * @return cursor
+     */
+    public static String encodeCursor(String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Make the cursor for the page of events after the given event
+     * @param year Year of the last event of a page
+     * @param eventID ID of the last event of a page
+     * @return cursor
+     */
+    public static String encodeEventCursor(int year, String eventID) {
+        return encodeCursor(year + ":" + eventID);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) throws RequestException {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new RequestException("Error: limit must be between 1 and " + MAX_LIMIT);
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * Key of the last row of the previous page
+     * @return key, or null for the first page
+     */
+    public String getAfter() {
+        return after;
+    }
+
+    /**
+     * Year of the last event of the previous page
+     * @return year, or null for the first page
+     */
+    public Integer getAfterYear() {
+        return afterYear;
+    }
+
+    /**
+     * ID of the last event of the previous page
+     * @return event ID, or null for the first page
+     */
+    public String getAfterEventID() {
+        return afterEventID;
+    }
+
+    public void setCursor(String cursor) throws RequestException {
+        String key;
+        try {
+            key = cursor.isEmpty() ? null : new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        }
+        catch (IllegalArgumentException e) {
+            throw new RequestException("Error: Invalid cursor");
+        }
+        Integer year = null;
+        String eventID = null;
+        if (key != null && events) {
+            int split = key.indexOf(':');
+            if (split < 0) {
+                throw new RequestException("Error: Invalid cursor");
+            }
+            try {
+                year = Integer.parseInt(key.substring(0, split));
+            }
+            catch (NumberFormatException e) {
+                throw new RequestException("Error: Invalid cursor");
+            }
+            eventID = key.substring(split + 1);
+        }
+        this.after = key;
+        this.afterYear = year;
+        this.afterEventID = eventID;
+    }
+
+    /**
+     * Fields to include in each row
+     * @return field names, or null for all
+     */
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    private void setFields(String list, List<String> fieldNames) throws RequestException {
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : list.split(",")) {
+            field = field.trim();
+            if (field.isEmpty()) {
+                continue;
+            }
+            if (!fieldNames.contains(field)) {
+                throw new RequestException("Error: Unknown field " + field);
+            }
+            selected.add(field);
+        }
+        this.fields = selected.isEmpty() ? null : selected;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public String getPersonID() {
+        return personID;
+    }
+
+    public Integer getYearFrom() {
+        return yearFrom;
+    }
+
+    public Integer getYearTo() {
+        return yearTo;
+    }
+
+    private static int parseInt(String name, String value) throws RequestException {
+        try {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException e) {
+            throw new RequestException("Error: " + name + " must be a number");
+        }
+    }
+}
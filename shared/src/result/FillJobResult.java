@@ -0,0 +1,143 @@
+package result;
+
+/**
+ * Status of an asynchronous fill job
+ */
+public class FillJobResult {
+    /**
+     * ID to poll the job's status with
+     */
+    private String jobID;
+    /**
+     * queued, running, succeeded or failed
+     */
+    private String status;
+    /**
+     * User being filled
+     */
+    private String username;
+    /**
+     * Number of generations being filled
+     */
+    private int generations;
+    /**
+     * Persons written so far
+     */
+    private long personsWritten;
+    /**
+     * Events written so far
+     */
+    private long eventsWritten;
+    /**
+     * Persons the fill will write
+     */
+    private long personsTotal;
+    /**
+     * Events the fill will write
+     */
+    private long eventsTotal;
+    /**
+     * Estimated seconds until the job finishes, null if not yet known
+     */
+    private Long etaSeconds;
+    /**
+     * Message from request, or the fill's result once finished
+     */
+    private String message;
+    /**
+     * Request status
+     */
+    private boolean success;
+
+    /**
+     * Create new FillJobResult for an error
+     * @param message Error message
+     * @param success Success status
+     */
+    public FillJobResult(String message, boolean success) {
+        this.message = message;
+        this.success = success;
+    }
+
+    /**
+     * Create new FillJobResult and initialize data members
+     * @param jobID ID to poll the job's status with
+     * @param status queued, running, succeeded or failed
+     * @param username User being filled
+     * @param generations Number of generations being filled
+     * @param personsWritten Persons written so far
+     * @param eventsWritten Events written so far
+     * @param personsTotal Persons the fill will write
+     * @param eventsTotal Events the fill will write
+     * @param etaSeconds Estimated seconds until the job finishes, null if not yet known
+     * @param message Message from request
+     * @param success Success status
+     */
+    public FillJobResult(String jobID, String status, String username, int generations, long personsWritten,
+                         long eventsWritten, long personsTotal, long eventsTotal, Long etaSeconds,
+                         String message, boolean success) {
+        this.jobID = jobID;
+        this.status = status;
+        this.username = username;
+        this.generations = generations;
+        this.personsWritten = personsWritten;
+        this.eventsWritten = eventsWritten;
+        this.personsTotal = personsTotal;
+        this.eventsTotal = eventsTotal;
+        this.etaSeconds = etaSeconds;
+        this.message = message;
+        this.success = success;
+    }
+
+    public String getJobID() {
+        return jobID;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    public long getPersonsWritten() {
+        return personsWritten;
+    }
+
+    public long getEventsWritten() {
+        return eventsWritten;
+    }
+
+    public long getPersonsTotal() {
+        return personsTotal;
+    }
+
+    public long getEventsTotal() {
+        return eventsTotal;
+    }
+
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+}
@@ -12,6 +12,18 @@ public class LoadResult {
      * Request status
      */
     private boolean success;
+    /**
+     * Number of users loaded
+     */
+    private int usersAdded;
+    /**
+     * Number of persons loaded
+     */
+    private int personsAdded;
+    /**
+     * Number of events loaded
+     */
+    private int eventsAdded;
 
     /**
      * Create new LoadResult and initialize data members
@@ -23,6 +35,22 @@ public class LoadResult {
         this.success = success;
     }
 
+    /**
+     * Create new LoadResult with per-section counts
+     * @param message Message from request
+     * @param success Success status
+     * @param usersAdded Number of users loaded
+     * @param personsAdded Number of persons loaded
+     * @param eventsAdded Number of events loaded
+     */
+    public LoadResult(String message, boolean success, int usersAdded, int personsAdded, int eventsAdded) {
+        this.message = message;
+        this.success = success;
+        this.usersAdded = usersAdded;
+        this.personsAdded = personsAdded;
+        this.eventsAdded = eventsAdded;
+    }
+
     public String getMessage() {
         return message;
     }
@@ -38,4 +66,16 @@ public class LoadResult {
     public void setSuccess(boolean success) {
         this.success = success;
     }
+
+    public int getUsersAdded() {
+        return usersAdded;
+    }
+
+    public int getPersonsAdded() {
+        return personsAdded;
+    }
+
+    public int getEventsAdded() {
+        return eventsAdded;
+    }
 }
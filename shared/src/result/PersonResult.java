@@ -10,6 +10,10 @@ public class PersonResult {
      * Array of persons
      */
     private Person[] data;
+    /**
+     * Cursor for the next page of a paged request, null on the last page or when not paged
+     */
+    private String nextCursor;
     /**
      * Message generated on error
      */
@@ -38,6 +42,14 @@ public class PersonResult {
         this.data = data;
     }
 
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
     public String getMessage() {
         return message;
     }
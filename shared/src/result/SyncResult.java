@@ -0,0 +1,112 @@
+package result;
+
+import model.Event;
+import model.Person;
+
+/**
+ * Changes to a user's persons and events since the revision a client last synced
+ */
+public class SyncResult {
+    /**
+     * Revision to pass as "since" on the next sync
+     */
+    private long revision;
+    /**
+     * Whether the client must drop its copy and use persons and events as the whole tree
+     */
+    private boolean reset;
+    /**
+     * Persons written since the client's revision, or all persons on reset
+     */
+    private Person[] persons;
+    /**
+     * Events written since the client's revision, or all events on reset
+     */
+    private Event[] events;
+    /**
+     * IDs of persons deleted since the client's revision
+     */
+    private String[] deletedPersons;
+    /**
+     * IDs of events deleted since the client's revision
+     */
+    private String[] deletedEvents;
+    /**
+     * Message generated on error
+     */
+    private String message;
+    /**
+     * Status of request
+     */
+    private boolean success;
+
+    /**
+     * Create new SyncResult for an error
+     * @param message Error message
+     * @param success Success status
+     */
+    public SyncResult(String message, boolean success) {
+        this.message = message;
+        this.success = success;
+    }
+
+    /**
+     * Create new SyncResult and initialize data members
+     * @param revision Revision to pass as "since" on the next sync
+     * @param reset Whether the client must drop its copy
+     * @param persons Persons written since the client's revision
+     * @param events Events written since the client's revision
+     * @param deletedPersons IDs of persons deleted since the client's revision
+     * @param deletedEvents IDs of events deleted since the client's revision
+     */
+    public SyncResult(long revision, boolean reset, Person[] persons, Event[] events, String[] deletedPersons,
+                      String[] deletedEvents) {
+        this.revision = revision;
+        this.reset = reset;
+        this.persons = persons;
+        this.events = events;
+        this.deletedPersons = deletedPersons;
+        this.deletedEvents = deletedEvents;
+        this.success = true;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public boolean isReset() {
+        return reset;
+    }
+
+    public Person[] getPersons() {
+        return persons;
+    }
+
+    public Event[] getEvents() {
+        return events;
+    }
+
+    public String[] getDeletedPersons() {
+        return deletedPersons;
+    }
+
+    public String[] getDeletedEvents() {
+        return deletedEvents;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+}
@@ -2,6 +2,9 @@ drop table if exists users;
 drop table if exists persons;
 drop table if exists events;
 drop table if exists auth_tokens;
+drop table if exists sync_state;
+drop table if exists tombstones;
+drop table if exists schema_version; -- lets sql/migrations re-apply on startup
 
 create table users
 (
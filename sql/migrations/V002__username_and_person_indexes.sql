@@ -0,0 +1,9 @@
+-- Lookups and cascading deletes by owner no longer scan every row
+create index if not exists persons_username_idx on persons(username);
+create index if not exists events_username_idx on events(username);
+create index if not exists events_person_id_idx on events(person_id);
+
+-- Foreign key checks on delete look up children by parent
+create index if not exists persons_father_id_idx on persons(father_id);
+create index if not exists persons_mother_id_idx on persons(mother_id);
+create index if not exists persons_spouse_id_idx on persons(spouse_id);
@@ -0,0 +1,16 @@
+-- SQLite cannot add a primary key in place, so the table is rebuilt
+create table auth_tokens_new
+(
+    auth_token varchar(255) not null primary key,
+    username varchar(255) not null,
+    foreign key(username) references users(username) on delete cascade
+);
+
+insert or ignore into auth_tokens_new (auth_token, username)
+    select auth_token, username from auth_tokens;
+
+drop table auth_tokens;
+
+alter table auth_tokens_new rename to auth_tokens;
+
+create index if not exists auth_tokens_username_idx on auth_tokens(username);
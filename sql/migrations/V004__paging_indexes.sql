@@ -0,0 +1,4 @@
+-- Pages of /person and /event are read in key order per owner. The username-only indexes stay, since
+-- unpaged reads return rows in the order they were loaded.
+create index if not exists persons_username_person_id_idx on persons(username, person_id);
+create index if not exists events_username_year_event_id_idx on events(username, year, event_id);
@@ -0,0 +1,24 @@
+-- Change tracking for /sync. Each person and event records the revision of its owner's tree that wrote it.
+alter table persons add column revision integer not null default 0;
+alter table events add column revision integer not null default 0;
+create index if not exists persons_username_revision_idx on persons(username, revision);
+create index if not exists events_username_revision_idx on events(username, revision);
+
+-- Last revision written per user, kept through clears so revisions never go backwards.
+-- Clients that last synced before floor must start over from a full copy.
+create table if not exists sync_state
+(
+    username varchar(255) not null primary key,
+    revision integer not null,
+    floor integer not null
+);
+
+-- IDs of deleted persons (kind p) and events (kind e), with the revision that deleted them
+create table if not exists tombstones
+(
+    username varchar(255) not null,
+    kind char(1) not null,
+    id varchar(255) not null,
+    revision integer not null
+);
+create index if not exists tombstones_username_revision_idx on tombstones(username, revision);
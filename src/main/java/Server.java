@@ -1,15 +1,43 @@
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
+import dao.AuthTokenCache;
+import dao.ConnectionPool;
+import dao.ConnectionProfile;
+import dao.DataAccessException;
+import dao.Database;
+import dao.FamilyTreeCache;
+import dao.PoolStats;
+import dao.SchemaMigrator;
+import dao.StatementCache;
 import handler.*;
+import json.DecodeException;
+import metrics.MetricsRegistry;
+import service.FillJobScheduler;
+import service.GenerationData;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 
 public class Server {
 
     static final int MAX_WAITING_CONNECTIONS = 500;
     private HttpServer server;
+    private ExecutorService executor;
+    private Semaphore dbPermits;
+    private FillJobScheduler fillJobs;
 
     public void run(String portNumber) {
+        run(portNumber, new Options());
+    }
+
+    public void run(String portNumber, Options options) {
 
         System.out.println("Initializing HTTP Server");
 
@@ -23,19 +51,95 @@ public class Server {
             e.printStackTrace();
         }
 
-        server.setExecutor(null);
+        ConnectionPool.configure(options.readPool, options.writePool, options.poolTimeoutMillis,
+                options.leakThresholdMillis);
+        ConnectionPool.setLeakTraces(options.leakTraces > 0);
+        StatementCache.configure(options.statementCacheSize);
+        Path profilePath = Paths.get(options.dbProfile);
+        if (Files.exists(profilePath)) {
+            try {
+                Database.setProfile(ConnectionProfile.load(profilePath));
+            }
+            catch (IOException | IllegalArgumentException e) {
+                System.out.printf("Warning: Unable to load %s (%s), using default profile%n",
+                        profilePath, e.getMessage());
+            }
+        }
+        System.out.printf("SQLite profile: %s%n", Database.getProfile());
+        AuthTokenCache.getInstance().configure(options.tokenCacheSize, options.tokenTtlSeconds * 1000L);
+        FamilyTreeCache.getInstance().configure(options.treeCacheMegabytes * 1024L * 1024L);
+        RequestBody.setMaxBytes(options.maxBodyMegabytes * 1024L * 1024L);
+        ResponseCache.getInstance().configure(options.responseCacheMegabytes * 1024L * 1024L,
+                options.compressMinBytes);
+
+        GenerationData.setReloadInterval(options.dataReloadSeconds * 1000L);
+        try {
+            long start = System.nanoTime();
+            GenerationData data = GenerationData.get();
+            System.out.printf("Generation data: %d locations, %d names, loaded in %d ms%n",
+                    data.getLocationCount(), data.getNameCount(), (System.nanoTime() - start) / 1_000_000);
+        }
+        catch (IOException | DecodeException e) {
+            System.out.printf("Warning: Unable to load generation data (%s), /fill will retry%n", e.getMessage());
+        }
+
+        try {
+            int version = new SchemaMigrator(Database.DEFAULT_DB_PATH).migrate();
+            System.out.printf("Database schema at version %d%n", version);
+        }
+        catch (DataAccessException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+
+        if (options.virtualThreads) {
+            try {
+                executor = WorkerPool.createVirtual();
+                dbPermits = new Semaphore(options.dbLimit);
+                System.out.printf("Virtual thread per exchange, %d concurrent database exchanges%n",
+                        options.dbLimit);
+            }
+            catch (UnsupportedOperationException e) {
+                System.out.println(e.getMessage() + ", falling back to platform worker pool");
+            }
+        }
+        if (executor == null) {
+            executor = WorkerPool.create(options.workers, options.queueCapacity);
+            System.out.printf("Worker pool: %d threads, queue capacity %d%n",
+                    options.workers, options.queueCapacity);
+        }
+        server.setExecutor(executor);
 
         // Creating and installing HTTP handlers
         System.out.println("Creating contexts");
 
-        server.createContext("/user/register", new RegisterHandler());
-        server.createContext("/user/login", new LoginHandler());
-        server.createContext("/clear", new ClearHandler());
-        server.createContext("/fill", new FillHandler());
-        server.createContext("/load", new LoadHandler());
-        server.createContext("/person", new PersonHandler());
-        server.createContext("/event", new EventHandler());
-        server.createContext("/", new FileHandler());
+        createContext("/user/register", limit(new RegisterHandler(), options.fillLimit, options), options);
+        createContext("/user/login", limit(new LoginHandler(), 0, options), options);
+        createContext("/clear", limit(new ClearHandler(), options.loadLimit, options), options);
+        // Synchronous fills and background fill jobs share one budget
+        Semaphore fillPermits = options.fillLimit > 0 ? new Semaphore(options.fillLimit) : null;
+        fillJobs = new FillJobScheduler(Database.DEFAULT_DB_PATH, options.fillJobs, options.fillJobQueue,
+                options.fillJobTtlSeconds * 1000L, fillPermits);
+        FillHandler fillHandler = new FillHandler(fillJobs);
+        createContext("/fill", new LimitedHandler(fillHandler, fillPermits, options.retryAfterSeconds, dbPermits,
+                options.retryAfterSeconds * 1000L), options);
+        // Status polls only read job state, so they must not wait behind running fills
+        createContext("/fill/status/", new LimitedHandler(fillHandler, 0, options.retryAfterSeconds), options);
+        createContext("/load", limit(new LoadHandler(), options.loadLimit, options), options);
+        createContext("/person", limit(new PersonHandler(), 0, options), options);
+        createContext("/event", limit(new EventHandler(), 0, options), options);
+        createContext("/sync", limit(new SyncHandler(), 0, options), options);
+        createContext("/metrics", new LimitedHandler(new MetricsHandler(), 0, options.retryAfterSeconds), options);
+        MetricsRegistry.getInstance().register(new StatsCollector());
+        try {
+            AssetCache assets = new AssetCache(Paths.get("web"), Math.max(0, options.compressMinBytes));
+            System.out.printf("Cached %d web files (%d bytes)%n", assets.size(), assets.totalBytes());
+            createContext("/", new LimitedHandler(new FileHandler(assets, options.assetMaxAgeSeconds), 0,
+                    options.retryAfterSeconds), options);
+        }
+        catch (IOException e) {
+            System.out.printf("Warning: Unable to read web files (%s), not serving webpage%n", e.getMessage());
+        }
 
         System.out.println("Starting server...");
 
@@ -44,12 +148,160 @@ public class Server {
         System.out.printf("Server now listening on port %s%n", portNumber);
     }
 
+    /**
+     * Stop the server and its worker pool
+     * @param delaySeconds Seconds to wait for in-flight exchanges to finish
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        fillJobs.shutdown();
+        for (PoolStats stats : ConnectionPool.allStats()) {
+            System.out.println(stats);
+        }
+        System.out.println(StatementCache.stats());
+        ConnectionPool.shutdownAll();
+        System.out.println(AuthTokenCache.getInstance());
+        System.out.println(FamilyTreeCache.getInstance());
+        System.out.println(ResponseCache.getInstance());
+        System.out.println(CompressionStats.getInstance());
+    }
+
+    /**
+     * Install a handler, counting and timing its requests and gzipping its responses unless compression is
+     * turned off
+     */
+    private void createContext(String path, HttpHandler handler, Options options) {
+        HttpContext context = server.createContext(path, handler);
+        context.getFilters().add(new MetricsFilter(path));
+        if (options.compressMinBytes >= 0) {
+            context.getFilters().add(new CompressionFilter(options.compressMinBytes));
+        }
+    }
+
+    private HttpHandler limit(HttpHandler handler, int maxConcurrent, Options options) {
+        return new LimitedHandler(handler, maxConcurrent, options.retryAfterSeconds,
+                dbPermits, options.retryAfterSeconds * 1000L);
+    }
+
+    /**
+     * Startup flags for sizing the worker pool and route limits
+     */
+    public static class Options {
+        int workers = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        int queueCapacity = 256;
+        int fillLimit = 2;
+        int loadLimit = 1;
+        int retryAfterSeconds = 5;
+        boolean virtualThreads = false;
+        int dbLimit = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        int readPool = 8;
+        int writePool = 4;
+        int poolTimeoutMillis = 5_000;
+        int leakThresholdMillis = 30_000;
+        int leakTraces = 0;
+        int statementCacheSize = 64;
+        int tokenCacheSize = 10_000;
+        int tokenTtlSeconds = 30 * 60;
+        int treeCacheMegabytes = 64;
+        int responseCacheMegabytes = 32;
+        int maxBodyMegabytes = 64;
+        int assetMaxAgeSeconds = 3600;
+        int compressMinBytes = 1024;
+        int dataReloadSeconds = 0;
+        int fillJobs = 2;
+        int fillJobQueue = 64;
+        int fillJobTtlSeconds = 10 * 60;
+        String dbProfile = "sql" + File.separator + "sqlite.properties";
+
+        /**
+         * Parse "--name=value" flags
+         * @param flags Command line flags following the port number
+         * @return parsed options, defaults for flags not given
+         * @throws IllegalArgumentException on unknown flag or invalid value
+         */
+        static Options parse(String[] flags) {
+            Options options = new Options();
+            for (String flag : flags) {
+                int split = flag.indexOf('=');
+                if (!flag.startsWith("--") || split < 0) {
+                    throw new IllegalArgumentException("Invalid flag: " + flag);
+                }
+                String name = flag.substring(2, split);
+                if (name.equals("mode")) {
+                    String mode = flag.substring(split + 1);
+                    if (!mode.equals("virtual") && !mode.equals("platform")) {
+                        throw new IllegalArgumentException("Mode must be virtual or platform: " + flag);
+                    }
+                    options.virtualThreads = mode.equals("virtual");
+                    continue;
+                }
+                if (name.equals("db-profile")) {
+                    options.dbProfile = flag.substring(split + 1);
+                    continue;
+                }
+                int value;
+                try {
+                    value = Integer.parseInt(flag.substring(split + 1));
+                }
+                catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Flag is not a number: " + flag);
+                }
+                switch (name) {
+                    case "workers" -> options.workers = value;
+                    case "queue" -> options.queueCapacity = value;
+                    case "fill-limit" -> options.fillLimit = value;
+                    case "load-limit" -> options.loadLimit = value;
+                    case "retry-after" -> options.retryAfterSeconds = value;
+                    case "db-limit" -> options.dbLimit = value;
+                    case "read-pool" -> options.readPool = value;
+                    case "write-pool" -> options.writePool = value;
+                    case "pool-timeout" -> options.poolTimeoutMillis = value;
+                    case "leak-threshold" -> options.leakThresholdMillis = value;
+                    case "leak-traces" -> options.leakTraces = value;
+                    case "statement-cache" -> options.statementCacheSize = value;
+                    case "token-cache" -> options.tokenCacheSize = value;
+                    case "token-ttl" -> options.tokenTtlSeconds = value;
+                    case "tree-cache-mb" -> options.treeCacheMegabytes = value;
+                    case "response-cache-mb" -> options.responseCacheMegabytes = value;
+                    case "max-body-mb" -> options.maxBodyMegabytes = value;
+                    case "asset-max-age" -> options.assetMaxAgeSeconds = value;
+                    case "compress-min" -> options.compressMinBytes = value;
+                    case "data-reload" -> options.dataReloadSeconds = value;
+                    case "fill-jobs" -> options.fillJobs = value;
+                    case "fill-job-queue" -> options.fillJobQueue = value;
+                    case "fill-job-ttl" -> options.fillJobTtlSeconds = value;
+                    default -> throw new IllegalArgumentException("Unknown flag: " + flag);
+                }
+            }
+            return options;
+        }
+    }
+
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.out.println("Usage: java Server.java <port number>");
+        if (args.length < 1) {
+            System.out.println("Usage: java Server.java <port number> [--mode=platform|virtual] [--workers=N] " +
+                    "[--queue=N] [--db-limit=N] [--fill-limit=N] [--load-limit=N] [--retry-after=SECONDS] " +
+                    "[--read-pool=N] [--write-pool=N] [--pool-timeout=MILLIS] [--leak-threshold=MILLIS] " +
+                    "[--leak-traces=1 to capture checkout stack traces] " +
+                    "[--statement-cache=N, 0 to disable] " +
+                    "[--db-profile=PATH] [--token-cache=N] [--token-ttl=SECONDS] [--tree-cache-mb=N, 0 to disable] " +
+                    "[--response-cache-mb=N, 0 to disable] [--max-body-mb=N] [--asset-max-age=SECONDS] " +
+                    "[--compress-min=BYTES, negative to disable] [--data-reload=SECONDS, 0 to disable] " +
+                    "[--fill-jobs=N] [--fill-job-queue=N] [--fill-job-ttl=SECONDS]");
             return;
         }
         String portNumber = args[0];
-        new Server().run(portNumber);
+        Options options;
+        try {
+            String[] flags = new String[args.length - 1];
+            System.arraycopy(args, 1, flags, 0, flags.length);
+            options = Options.parse(flags);
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        new Server().run(portNumber, options);
     }
 }
@@ -0,0 +1,155 @@
+package dao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, expiring cache of auth token to username lookups in front of the auth_tokens table
+ */
+public class AuthTokenCache {
+    private static final AuthTokenCache instance = new AuthTokenCache(10_000, 30 * 60 * 1000L);
+
+    /**
+     * Maximum number of cached tokens before the least recently used is evicted
+     */
+    private volatile int maxSize;
+    /**
+     * Milliseconds a cached token stays valid before it is looked up again
+     */
+    private volatile long ttlMillis;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    /**
+     * Bumped by every invalidateAll, guarded by entries; a lookup that began in an earlier epoch may have read
+     * tokens that have since been deleted, so its result is not cached
+     */
+    private long epoch;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    AuthTokenCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Get the process-wide cache
+     * @return shared cache
+     */
+    public static AuthTokenCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Change the cache bounds; entries over the new size are evicted on the next insert
+     * @param newMaxSize Maximum number of cached tokens, 0 disables caching
+     * @param newTtlMillis Milliseconds a cached token stays valid
+     */
+    public void configure(int newMaxSize, long newTtlMillis) {
+        maxSize = newMaxSize;
+        ttlMillis = newTtlMillis;
+        if (newMaxSize == 0) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Look up the username for a token
+     * @param token Auth token
+     * @return cached username, or null if not cached or expired
+     */
+    String get(String token) {
+        synchronized (entries) {
+            Entry entry = entries.get(token);
+            if (entry != null && System.currentTimeMillis() - entry.cachedAt <= ttlMillis) {
+                hits.incrementAndGet();
+                return entry.username;
+            }
+            if (entry != null) {
+                entries.remove(token);
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Current epoch, to be taken before reading a token from the database and passed to {@link #put}
+     * @return epoch
+     */
+    long epoch() {
+        synchronized (entries) {
+            return epoch;
+        }
+    }
+
+    /**
+     * Cache a validated token, unless the cache was invalidated since the lookup began
+     * @param token Auth token
+     * @param username Username the token belongs to
+     * @param lookupEpoch Epoch taken before the token was read
+     */
+    void put(String token, String username, long lookupEpoch) {
+        if (maxSize <= 0) {
+            return;
+        }
+        synchronized (entries) {
+            if (lookupEpoch != epoch) {
+                return;
+            }
+            entries.put(token, new Entry(username, System.currentTimeMillis()));
+            while (entries.size() > maxSize) {
+                Map.Entry<String, Entry> eldest = entries.entrySet().iterator().next();
+                entries.remove(eldest.getKey());
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Drop every cached token. Call after the transaction that deleted tokens or users has committed, so no
+     * lookup can cache a deleted token again.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            epoch++;
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("auth token cache: size=%d hits=%d misses=%d evictions=%d",
+                size(), getHits(), getMisses(), getEvictions());
+    }
+
+    private static class Entry {
+        final String username;
+        final long cachedAt;
+
+        Entry(String username, long cachedAt) {
+            this.username = username;
+            this.cachedAt = cachedAt;
+        }
+    }
+}
@@ -32,7 +32,7 @@ public class AuthTokenDAO {
         String sqlStmt = "insert into auth_tokens (auth_token, username) " +
                 "values (?, ?)";
 
-        try (PreparedStatement stmt = conn.prepareStatement(sqlStmt)) {
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sqlStmt)) {
             stmt.setString(1, token.getToken());
             stmt.setString(2, token.getUsername());
 
@@ -44,21 +44,30 @@ public class AuthTokenDAO {
     }
 
     /**
-     * Checks to see if token exists and matches the given user ID
+     * Checks to see if token exists and matches the given user ID, answering from AuthTokenCache when possible
      * @param token AuthToken string to validate
      * @return username if token exists and matches the user ID, else returns null
      * @throws DataAccessException on database failure or invalid data
      */
     public String validate(String token) throws DataAccessException {
-        String sql = "select auth_token, username from auth_tokens where auth_token = '" + token + "'";
+        AuthTokenCache cache = AuthTokenCache.getInstance();
+        String cachedUsername = cache.get(token);
+        if (cachedUsername != null) {
+            return cachedUsername;
+        }
+        long epoch = cache.epoch();
+
+        String sql = "select auth_token, username from auth_tokens where auth_token = ?";
         ResultSet rs = null;
 
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sql)) {
+            stmt.setString(1, token);
             rs = stmt.executeQuery();
             if (rs.next()) {
                 String foundToken = rs.getString(1);
                 String username = rs.getString(2);
                 if (token.equals(foundToken)) {
+                    cache.put(token, username, epoch);
                     return username;
                 }
                 return null;
@@ -80,12 +89,12 @@ public class AuthTokenDAO {
     }
 
     /**
-     * Delete all authTokens in the database
+     * Delete all authTokens in the database; the caller invalidates AuthTokenCache once this commits
      * @throws DataAccessException on database failure or failure to delete
      */
     public void deleteAuthTokens() throws DataAccessException {
         String sql = "delete from auth_tokens";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sql)) {
             stmt.executeUpdate();
         }
         catch (SQLException e) {
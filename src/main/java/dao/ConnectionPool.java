@@ -0,0 +1,361 @@
+package dao;
+
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+import org.sqlite.SQLiteConfig;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size pool of long-lived connections to one database file
+ */
+public class ConnectionPool {
+    /**
+     * How connections in a pool are configured
+     */
+    public enum Mode {
+        /**
+         * Read-only connections for lookups
+         */
+        READ_ONLY,
+        /**
+         * Writable connections, foreign keys not enforced
+         */
+        READ_WRITE,
+        /**
+         * Writable connections with foreign keys enforced, used for cascading deletes
+         */
+        FOREIGN_KEYS
+    }
+
+    /**
+     * Upper bounds in microseconds of the checkout wait time histogram buckets; the last bucket is unbounded
+     */
+    static final long[] WAIT_BUCKETS_MICROS = {10, 100, 1_000, 5_000, 10_000, 50_000, 100_000, 500_000, 1_000_000};
+
+    /**
+     * Connections idle for longer than this are validated before being handed out
+     */
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = 30_000;
+
+    private static final Map<String, ConnectionPool> pools = new ConcurrentHashMap<>();
+    private static volatile int readOnlySize = 8;
+    private static volatile int writeSize = 4;
+    private static volatile long checkoutTimeoutMillis = 5_000;
+    private static volatile long leakThresholdMillis = 30_000;
+    /**
+     * Whether to capture a stack trace at every checkout so leaks can be traced to their caller
+     */
+    private static volatile boolean leakTraces = false;
+
+    private static final ScheduledExecutorService leakDetector = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "fms-pool-leak-detector");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        leakDetector.scheduleWithFixedDelay(() -> {
+            for (ConnectionPool pool : pools.values()) {
+                pool.detectLeaks();
+            }
+        }, 5, 5, TimeUnit.SECONDS);
+    }
+
+    private final String dbPath;
+    private final Mode mode;
+    private final int size;
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Map<Connection, PooledConnection> checkedOut = new ConcurrentHashMap<>();
+    /**
+     * One permit per connection not checked out; waiting borrowers are woken as soon as a connection is
+     * released or discarded
+     */
+    private final Semaphore available;
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+    private final AtomicLongArray waitHistogram = new AtomicLongArray(WAIT_BUCKETS_MICROS.length + 1);
+    private final Histogram waitTime;
+
+    private ConnectionPool(String dbPath, Mode mode, int size) {
+        this.dbPath = dbPath;
+        this.mode = mode;
+        this.size = size;
+        this.available = new Semaphore(size);
+        this.waitTime = MetricsRegistry.getInstance().histogram("fms_db_connection_wait_seconds",
+                "Time to check a connection out of a pool", MetricsRegistry.labels("db", dbPath,
+                        "mode", mode.name().toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * Set the sizing used for pools created after this call
+     * @param readOnly Number of read-only connections per database
+     * @param write Number of writable connections per database and mode
+     * @param timeoutMillis Milliseconds to wait for a free connection before failing
+     * @param leakMillis Milliseconds a connection may be checked out before it is reported as leaked
+     */
+    public static void configure(int readOnly, int write, long timeoutMillis, long leakMillis) {
+        if (readOnly < 1 || write < 1) {
+            throw new IllegalArgumentException("Pool sizes must be positive");
+        }
+        readOnlySize = readOnly;
+        writeSize = write;
+        checkoutTimeoutMillis = timeoutMillis;
+        leakThresholdMillis = leakMillis;
+    }
+
+    /**
+     * Capture the caller's stack trace at every checkout, printed if the connection is reported as leaked.
+     * Off by default, since it costs a stack walk per checkout; leaks are still reported with the thread name.
+     * @param enabled Whether to capture stack traces
+     */
+    public static void setLeakTraces(boolean enabled) {
+        leakTraces = enabled;
+    }
+
+    /**
+     * Get the pool for the given database and mode, creating it on first use
+     * @param dbPath Path to the database
+     * @param mode How connections in the pool are configured
+     * @return the shared pool
+     */
+    public static ConnectionPool get(String dbPath, Mode mode) {
+        return pools.computeIfAbsent(dbPath + "|" + mode,
+                key -> new ConnectionPool(dbPath, mode, mode == Mode.READ_ONLY ? readOnlySize : writeSize));
+    }
+
+    /**
+     * Get statistics for every pool created so far
+     * @return list of pool statistics
+     */
+    public static List<PoolStats> allStats() {
+        List<PoolStats> stats = new ArrayList<>();
+        for (ConnectionPool pool : pools.values()) {
+            stats.add(pool.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Close the idle connections of every pool. Checked out connections are closed when they are released.
+     */
+    public static void shutdownAll() {
+        Collection<ConnectionPool> all = new ArrayList<>(pools.values());
+        pools.clear();
+        for (ConnectionPool pool : all) {
+            pool.closeIdle();
+        }
+    }
+
+    /**
+     * Borrow a connection, waiting for one to be released if the pool is exhausted
+     * @return handle to a connection with auto-commit off, unusable once released
+     * @throws DataAccessException on checkout timeout or failure to open a connection
+     */
+    public Connection borrow() throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            if (!available.tryAcquire(checkoutTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new DataAccessException("Timed out waiting for a database connection");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted waiting for a database connection");
+        }
+        // Holding a permit means an idle connection exists or there is room to open one
+        while (true) {
+            PooledConnection pooled = idle.pollFirst();
+            if (pooled == null) {
+                try {
+                    pooled = new PooledConnection(openConnection());
+                }
+                catch (SQLException e) {
+                    available.release();
+                    e.printStackTrace();
+                    throw new DataAccessException("Unable to open connection to database");
+                }
+            }
+            else if (!isHealthy(pooled)) {
+                closeQuietly(pooled.conn);
+                continue;
+            }
+            recordWait(System.nanoTime() - start);
+            pooled.checkedOutAt = System.currentTimeMillis();
+            pooled.owner = Thread.currentThread().getName();
+            pooled.trace = leakTraces ? new Throwable("Connection checked out here") : null;
+            pooled.reported = false;
+            checkedOut.put(pooled.conn, pooled);
+            checkouts.incrementAndGet();
+            return new BorrowedConnection(pooled.conn);
+        }
+    }
+
+    /**
+     * Return a borrowed connection to the pool
+     * @param conn Connection to return; its transaction must already be committed or rolled back
+     * @param broken True if the connection failed and should be closed instead of reused
+     */
+    public void release(Connection conn, boolean broken) {
+        if (conn instanceof BorrowedConnection borrowed) {
+            if (!borrowed.invalidate()) {
+                // Released twice
+                return;
+            }
+            conn = borrowed.conn;
+        }
+        PooledConnection pooled = checkedOut.remove(conn);
+        if (pooled == null) {
+            // Not ours (pool was shut down or connection released twice)
+            closeQuietly(conn);
+            return;
+        }
+        if (broken || pools.get(dbPath + "|" + mode) != this) {
+            closeQuietly(conn);
+        }
+        else {
+            pooled.owner = null;
+            pooled.trace = null;
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        }
+        available.release();
+    }
+
+    /**
+     * Snapshot this pool's usage statistics
+     * @return current statistics
+     */
+    public PoolStats getStats() {
+        long[] histogram = new long[waitHistogram.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = waitHistogram.get(i);
+        }
+        return new PoolStats(dbPath, mode, size, checkedOut.size(), idle.size(), checkouts.get(),
+                timeouts.get(), leaksDetected.get(), histogram);
+    }
+
+    private Connection openConnection() throws SQLException {
+        //The Structure for this Connection is driver:language:path
+        //The path assumes you start in the root of your project unless given a non-relative path
+        final String CONNECTION_URL = "jdbc:sqlite:" + dbPath;
+
+        SQLiteConfig config = new SQLiteConfig();
+        config.enforceForeignKeys(mode == Mode.FOREIGN_KEYS);
+        config.setReadOnly(mode == Mode.READ_ONLY);
+        Connection conn = DriverManager.getConnection(CONNECTION_URL, config.toProperties());
+        try {
+            Database.getProfile().apply(conn, mode == Mode.READ_ONLY);
+        }
+        catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+
+        // Every checkout runs in a transaction
+        conn.setAutoCommit(false);
+        StatementCache.attach(conn);
+        return conn;
+    }
+
+    private boolean isHealthy(PooledConnection pooled) {
+        try {
+            if (pooled.conn.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - pooled.lastUsed < VALIDATE_AFTER_IDLE_MILLIS) {
+                return true;
+            }
+            try (Statement stmt = pooled.conn.createStatement()) {
+                stmt.execute("select 1");
+            }
+            pooled.conn.rollback();
+            return true;
+        }
+        catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void recordWait(long nanos) {
+        waitTime.record(nanos);
+        long micros = nanos / 1_000;
+        int bucket = 0;
+        while (bucket < WAIT_BUCKETS_MICROS.length && micros > WAIT_BUCKETS_MICROS[bucket]) {
+            bucket++;
+        }
+        waitHistogram.incrementAndGet(bucket);
+    }
+
+    private void detectLeaks() {
+        if (leakThresholdMillis <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : checkedOut.values()) {
+            if (!pooled.reported && now - pooled.checkedOutAt > leakThresholdMillis) {
+                pooled.reported = true;
+                leaksDetected.incrementAndGet();
+                System.out.printf("Warning: Connection to %s held by %s for over %d ms, possible leak%n",
+                        dbPath, pooled.owner, leakThresholdMillis);
+                Throwable trace = pooled.trace;
+                if (trace != null) {
+                    trace.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void closeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled.conn);
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        StatementCache.detach(conn);
+        try {
+            conn.close();
+        }
+        catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Connection with the bookkeeping the pool needs
+     */
+    private static class PooledConnection {
+        final Connection conn;
+        volatile long lastUsed;
+        volatile long checkedOutAt;
+        /**
+         * Name of the thread that checked the connection out
+         */
+        volatile String owner;
+        /**
+         * Where the connection was checked out, when leak traces are on
+         */
+        volatile Throwable trace;
+        volatile boolean reported;
+
+        PooledConnection(Connection conn) {
+            this.conn = conn;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+}
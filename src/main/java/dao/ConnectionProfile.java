@@ -0,0 +1,165 @@
+package dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * PRAGMA settings applied to every connection when it is opened
+ */
+public class ConnectionProfile {
+    private static final Set<String> JOURNAL_MODES = Set.of("DELETE", "TRUNCATE", "PERSIST", "MEMORY", "WAL", "OFF");
+    private static final Set<String> SYNCHRONOUS_MODES = Set.of("OFF", "NORMAL", "FULL", "EXTRA");
+    private static final Set<String> TEMP_STORES = Set.of("DEFAULT", "FILE", "MEMORY");
+
+    /**
+     * Journal mode; WAL lets readers run while a single writer commits
+     */
+    private final String journalMode;
+    /**
+     * How often SQLite waits for data to reach the disk
+     */
+    private final String synchronous;
+    /**
+     * Page cache size; negative values are KiB, positive values are pages
+     */
+    private final int cacheSize;
+    /**
+     * Bytes of the database file to memory-map, 0 to disable
+     */
+    private final long mmapSize;
+    /**
+     * Where temporary tables and indices are kept
+     */
+    private final String tempStore;
+    /**
+     * Milliseconds to retry on a locked database before failing
+     */
+    private final int busyTimeout;
+
+    /**
+     * Create new ConnectionProfile
+     * @param journalMode Journal mode (DELETE, TRUNCATE, PERSIST, MEMORY, WAL or OFF)
+     * @param synchronous Synchronous mode (OFF, NORMAL, FULL or EXTRA)
+     * @param cacheSize Page cache size; negative values are KiB, positive values are pages
+     * @param mmapSize Bytes of the database file to memory-map, 0 to disable
+     * @param tempStore Temp store (DEFAULT, FILE or MEMORY)
+     * @param busyTimeout Milliseconds to retry on a locked database before failing
+     * @throws IllegalArgumentException on unknown mode names or negative sizes
+     */
+    public ConnectionProfile(String journalMode, String synchronous, int cacheSize, long mmapSize,
+                             String tempStore, int busyTimeout) {
+        this.journalMode = checkValue("journal_mode", journalMode, JOURNAL_MODES);
+        this.synchronous = checkValue("synchronous", synchronous, SYNCHRONOUS_MODES);
+        this.tempStore = checkValue("temp_store", tempStore, TEMP_STORES);
+        if (mmapSize < 0 || busyTimeout < 0) {
+            throw new IllegalArgumentException("mmap_size and busy_timeout must not be negative");
+        }
+        this.cacheSize = cacheSize;
+        this.mmapSize = mmapSize;
+        this.busyTimeout = busyTimeout;
+    }
+
+    /**
+     * Profile used when no deployment settings are given: WAL with NORMAL sync, 16 MiB page cache,
+     * 64 MiB memory map, in-memory temp store and a 5 second busy timeout
+     * @return default profile
+     */
+    public static ConnectionProfile defaults() {
+        return new ConnectionProfile("WAL", "NORMAL", -16_384, 64L * 1024 * 1024, "MEMORY", 5_000);
+    }
+
+    /**
+     * Load a profile from a properties file. Keys are the PRAGMA names (journal_mode, synchronous, cache_size,
+     * mmap_size, temp_store, busy_timeout); missing keys keep their default value.
+     * @param path Path to properties file
+     * @return loaded profile
+     * @throws IOException on failure to read the file
+     * @throws IllegalArgumentException on invalid values
+     */
+    public static ConnectionProfile load(Path path) throws IOException {
+        Properties props = new Properties();
+        try (InputStream is = Files.newInputStream(path)) {
+            props.load(is);
+        }
+        ConnectionProfile base = defaults();
+        try {
+            return new ConnectionProfile(
+                    props.getProperty("journal_mode", base.journalMode),
+                    props.getProperty("synchronous", base.synchronous),
+                    Integer.parseInt(props.getProperty("cache_size", String.valueOf(base.cacheSize)).trim()),
+                    Long.parseLong(props.getProperty("mmap_size", String.valueOf(base.mmapSize)).trim()),
+                    props.getProperty("temp_store", base.tempStore),
+                    Integer.parseInt(props.getProperty("busy_timeout", String.valueOf(base.busyTimeout)).trim()));
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Apply the profile to a newly opened connection; must run before a transaction is started
+     * @param conn Connection to configure
+     * @param readOnly True if the connection cannot write, in which case the journal mode is left alone
+     * @throws SQLException on database failure
+     */
+    void apply(Connection conn, boolean readOnly) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // busy_timeout first so that switching the journal mode waits out other connections
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeout);
+            if (!readOnly) {
+                stmt.execute("PRAGMA journal_mode = " + journalMode);
+            }
+            stmt.execute("PRAGMA synchronous = " + synchronous);
+            stmt.execute("PRAGMA cache_size = " + cacheSize);
+            stmt.execute("PRAGMA mmap_size = " + mmapSize);
+            stmt.execute("PRAGMA temp_store = " + tempStore);
+        }
+    }
+
+    public String getJournalMode() {
+        return journalMode;
+    }
+
+    public String getSynchronous() {
+        return synchronous;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public long getMmapSize() {
+        return mmapSize;
+    }
+
+    public String getTempStore() {
+        return tempStore;
+    }
+
+    public int getBusyTimeout() {
+        return busyTimeout;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("journal_mode=%s synchronous=%s cache_size=%d mmap_size=%d temp_store=%s busy_timeout=%d",
+                journalMode, synchronous, cacheSize, mmapSize, tempStore, busyTimeout);
+    }
+
+    // PRAGMA values cannot be bound as parameters, so only known names are let through
+    private static String checkValue(String pragma, String value, Set<String> allowed) {
+        String normalized = value == null ? "" : value.trim().toUpperCase(Locale.ROOT);
+        if (!allowed.contains(normalized)) {
+            throw new IllegalArgumentException("Invalid " + pragma + ": " + value);
+        }
+        return normalized;
+    }
+}
@@ -2,19 +2,33 @@
 
 package dao;
 
-import org.sqlite.SQLiteConfig;
-
 import java.io.File;
 import java.sql.*;
 
 /**
- * Handles opening and closing of database connections
+ * Handles borrowing and returning of pooled database connections
  */
 public class Database {
+    /**
+     * Default number of rows sent to the database per batch by the DAO insertAll methods
+     */
+    public static final int BATCH_SIZE = 500;
+    /**
+     * Path to the production database, relative to the root of the project
+     */
+    public static final String DEFAULT_DB_PATH = "sql" + File.separator + "prod-db.db";
     /**
      * Connection to database
      */
     private Connection conn;
+    /**
+     * Pool the connection was borrowed from
+     */
+    private ConnectionPool pool;
+    /**
+     * PRAGMA settings applied to each connection when it is first opened
+     */
+    private static volatile ConnectionProfile profile = ConnectionProfile.defaults();
 
     /**
      * Create new database and initialize connection
@@ -29,63 +43,59 @@ public class Database {
      * @throws DataAccessException on failure to open connection with database
      */
     public Connection open() throws DataAccessException {
-        try {
-            //The Structure for this Connection is driver:language:path
-            //The path assumes you start in the root of your project unless given a non-relative path
-            String dbPath = "sql" + File.separator + "prod-db.db";
-            final String CONNECTION_URL = "jdbc:sqlite:" + dbPath;
-
-            // Open a database connection to the file given in the path
-            conn = DriverManager.getConnection(CONNECTION_URL);
-
-            // Start a transaction
-            conn.setAutoCommit(false);
-        } catch (SQLException e) {
-            e.printStackTrace();
-            throw new DataAccessException("Unable to open connection to database");
-        }
-
-        return conn;
+        return open(DEFAULT_DB_PATH);
     }
 
+    /**
+     * Borrow a writable connection to the given database
+     * @param dbPath Path to the database
+     * @return connection with a transaction started
+     * @throws DataAccessException on failure to open connection with database
+     */
     public Connection open(String dbPath) throws DataAccessException {
-        try {
-            //The Structure for this Connection is driver:language:path
-            //The path assumes you start in the root of your project unless given a non-relative path
-            final String CONNECTION_URL = "jdbc:sqlite:" + dbPath;
-
-            // Open a database connection to the file given in the path
-            conn = DriverManager.getConnection(CONNECTION_URL);
-
-            // Start a transaction
-            conn.setAutoCommit(false);
-        } catch (SQLException e) {
-            e.printStackTrace();
-            throw new DataAccessException("Unable to open connection to database");
-        }
+        return borrow(dbPath, ConnectionPool.Mode.READ_WRITE);
+    }
 
-        return conn;
+    /**
+     * Borrow a read-only connection to the given database
+     * @param dbPath Path to the database
+     * @return connection with a transaction started
+     * @throws DataAccessException on failure to open connection with database
+     */
+    public Connection openReadOnly(String dbPath) throws DataAccessException {
+        return borrow(dbPath, ConnectionPool.Mode.READ_ONLY);
     }
 
+    /**
+     * Borrow a writable connection to the given database that enforces foreign keys
+     * @param dbPath Path to the database
+     * @return connection with a transaction started
+     * @throws DataAccessException on failure to open connection with database
+     */
     public Connection openWithForeignKey(String dbPath) throws DataAccessException {
-        try {
-            //The Structure for this Connection is driver:language:path
-            //The path assumes you start in the root of your project unless given a non-relative path
-            final String CONNECTION_URL = "jdbc:sqlite:" + dbPath;
+        return borrow(dbPath, ConnectionPool.Mode.FOREIGN_KEYS);
+    }
 
-            // Open a database connection to the file given in the path
-            SQLiteConfig config = new SQLiteConfig();
-            config.enforceForeignKeys(true);
-            conn = DriverManager.getConnection(CONNECTION_URL, config.toProperties());
+    private Connection borrow(String dbPath, ConnectionPool.Mode mode) throws DataAccessException {
+        pool = ConnectionPool.get(dbPath, mode);
+        conn = pool.borrow();
+        return conn;
+    }
 
-            // Start a transaction
-            conn.setAutoCommit(false);
-        } catch (SQLException e) {
-            e.printStackTrace();
-            throw new DataAccessException("Unable to open connection to database");
-        }
+    /**
+     * Set the PRAGMA settings for connections opened from now on
+     * @param newProfile Profile to apply
+     */
+    public static void setProfile(ConnectionProfile newProfile) {
+        profile = newProfile;
+    }
 
-        return conn;
+    /**
+     * Get the PRAGMA settings applied to newly opened connections
+     * @return current profile
+     */
+    public static ConnectionProfile getProfile() {
+        return profile;
     }
 
     public Connection getConnection() throws DataAccessException {
@@ -97,11 +107,16 @@ public class Database {
     }
 
     /**
-     * Close current open connection
+     * Close current open connection, returning it to its pool
      * @param commit Commit current changes
      * @throws DataAccessException on failure to close connection or commit changes
      */
     public void close(boolean commit) throws DataAccessException {
+        if (conn == null) {
+            // Nothing was borrowed, e.g. the checkout timed out
+            return;
+        }
+        boolean broken = false;
         try {
             if (commit) {
                 //This will commit the changes to the database
@@ -111,29 +126,33 @@ public class Database {
                 //will rollback any changes we made during this connection
                 conn.rollback();
             }
-            conn.close();
-            conn = null;
         } catch (SQLException e) {
             e.printStackTrace();
+            broken = true;
             throw new DataAccessException("Unable to close database connection");
         }
+        finally {
+            pool.release(conn, broken);
+            conn = null;
+            pool = null;
+        }
     }
 
     /**
-     * Clear all tables in database
+     * Clear all tables in database; the caller invalidates AuthTokenCache once this commits
      * @throws DataAccessException on database failure or failure to drop tables
      */
     public void clearTables() throws DataAccessException
     {
-        try {
-            PreparedStatement stmt1 = conn.prepareStatement("DELETE FROM users");
-            PreparedStatement stmt2 = conn.prepareStatement("DELETE FROM events");
-            PreparedStatement stmt3 = conn.prepareStatement("DELETE FROM persons");
-            PreparedStatement stmt4 = conn.prepareStatement("DELETE FROM auth_tokens");
+        try (PreparedStatement stmt1 = StatementCache.prepare(conn, "DELETE FROM users");
+             PreparedStatement stmt2 = StatementCache.prepare(conn, "DELETE FROM events");
+             PreparedStatement stmt3 = StatementCache.prepare(conn, "DELETE FROM persons");
+             PreparedStatement stmt4 = StatementCache.prepare(conn, "DELETE FROM auth_tokens")) {
             stmt1.executeUpdate();
             stmt2.executeUpdate();
             stmt3.executeUpdate();
             stmt4.executeUpdate();
+            new SyncDAO(conn).resetAll();
         }
         catch (SQLException e) {
             throw new DataAccessException("Unable to clear tables");
@@ -1,10 +1,17 @@
 package dao;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import model.Event;
+import request.PageRequest;
 
 /**
  * Interfaces with events in database
@@ -31,8 +38,8 @@ public class EventDAO {
      */
     public void insert(Event event) throws DataAccessException {
         String sql = "insert into events (event_id, username, person_id, latitude, longitude, " +
-                "country, city, event_type, year) values(?,?,?,?,?,?,?,?,?)";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                "country, city, event_type, year, revision) values(?,?,?,?,?,?,?,?,?,?)";
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sql)) {
 
             stmt.setString(1, event.getEventID());
             stmt.setString(2, event.getUsername());
@@ -43,6 +50,7 @@ public class EventDAO {
             stmt.setString(7, event.getCity());
             stmt.setString(8, event.getEventType());
             stmt.setInt(9, event.getYear());
+            stmt.setLong(10, new SyncDAO(conn).nextRevision(event.getUsername()));
 
             stmt.executeUpdate();
         } catch (SQLException e) {
@@ -50,6 +58,54 @@ public class EventDAO {
         }
     }
 
+    /**
+     * Insert events into database in batches, reusing one prepared statement
+     * @param events Events to insert
+     * @throws DataAccessException on failure to insert (Invalid data or database failure)
+     */
+    public void insertAll(Collection<Event> events) throws DataAccessException {
+        insertAll(events, Database.BATCH_SIZE);
+    }
+
+    /**
+     * Insert events into database in batches, reusing one prepared statement
+     * @param events Events to insert
+     * @param batchSize Number of rows sent to the database per batch
+     * @throws DataAccessException on failure to insert (Invalid data or database failure)
+     */
+    public void insertAll(Collection<Event> events, int batchSize) throws DataAccessException {
+        String sql = "insert into events (event_id, username, person_id, latitude, longitude, " +
+                "country, city, event_type, year, revision) values(?,?,?,?,?,?,?,?,?,?)";
+        SyncDAO sync = new SyncDAO(conn);
+        Map<String, Long> revisions = new HashMap<>();
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sql)) {
+            int pending = 0;
+            for (Event event : events) {
+                stmt.setString(1, event.getEventID());
+                stmt.setString(2, event.getUsername());
+                stmt.setString(3, event.getPersonID());
+                stmt.setFloat(4, event.getLatitude());
+                stmt.setFloat(5, event.getLongitude());
+                stmt.setString(6, event.getCountry());
+                stmt.setString(7, event.getCity());
+                stmt.setString(8, event.getEventType());
+                stmt.setInt(9, event.getYear());
+                stmt.setLong(10, sync.revisionFor(event.getUsername(), revisions));
+                stmt.addBatch();
+
+                if (++pending == batchSize) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error: " + e.getMessage());
+        }
+    }
+
     /**
      * Find Event based on given eventID
      * @param eventID eventID to match
@@ -59,8 +115,9 @@ public class EventDAO {
     public Event getEventByID(String eventID) throws DataAccessException {
         Event event;
         ResultSet rs = null;
-        String sql = "select * from events where event_id = ?;";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        String sql = "select event_id, username, person_id, latitude, longitude, country, city, event_type, year " +
+                "from events where event_id = ?";
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sql)) {
             stmt.setString(1, eventID);
             rs = stmt.executeQuery();
             if (rs.next()) {
@@ -90,60 +147,152 @@ public class EventDAO {
     }
 
     /**
-     * Get all events associated with the given username
+     * Get all events associated with the given username in a single query
      * @param username Username of currently logged-in user, authenticated via AuthToken
-     * @return array of events
+     * @return array of events, null if the user has none
      * @throws DataAccessException on database failure or invalid data
      */
     public Event[] getAllEventsByUsername(String username) throws DataAccessException {
-        String countSql = "select count(*) from events where username = '" + username + "'";
-        String sql = "select * from events where username = '" + username + "'";
-        ResultSet rs;
-        Event[] foundEvents;
-        int numEvents;
+        ArrayList<Event> foundEvents = new ArrayList<>();
+        try {
+            forEachEventByUsername(username, foundEvents::add);
+        }
+        catch (IOException e) {
+            // ArrayList.add does not throw
+            throw new DataAccessException(e.getMessage());
+        }
+        return foundEvents.isEmpty() ? null : foundEvents.toArray(new Event[0]);
+    }
+
+    /**
+     * Stream all events associated with the given username to a consumer as they are read
+     * @param username Username of currently logged-in user, authenticated via AuthToken
+     * @param consumer Receives each event
+     * @return number of events read
+     * @throws DataAccessException on database failure or invalid data
+     * @throws IOException if the consumer fails
+     */
+    public int forEachEventByUsername(String username, RowConsumer<Event> consumer)
+            throws DataAccessException, IOException {
+        // Columns listed explicitly so the column numbers below do not depend on the table layout. Rows come in
+        // the order they were inserted, which the username index gives without sorting.
+        String sql = "select event_id, username, person_id, latitude, longitude, country, city, event_type, year " +
+                "from events where username = ? order by rowid";
+        int count = 0;
 
-        try (PreparedStatement countStmt = conn.prepareStatement(countSql)) {
-            rs = countStmt.executeQuery();
-            numEvents = rs.getInt(1);
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sql)) {
+            stmt.setString(1, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(new Event(rs.getString(1), rs.getString(2), rs.getString(3),
+                            rs.getFloat(4), rs.getFloat(5), rs.getString(6), rs.getString(7),
+                            rs.getString(8), rs.getInt(9)));
+                    count++;
+                }
+            }
         }
         catch (SQLException e) {
-            throw new DataAccessException("Unable to count persons");
+            throw new DataAccessException("Error getting events");
         }
+        return count;
+    }
 
-        if (numEvents == 0) return null;
-        else foundEvents = new Event[numEvents];
+    /**
+     * Stream one page of the events associated with the given username, in year then ID order, optionally
+     * filtered by type, person and year range
+     * @param username Username of currently logged-in user, authenticated via AuthToken
+     * @param page Page to read and its filters
+     * @param consumer Receives each event
+     * @return cursor for the next page, or null if this was the last
+     * @throws DataAccessException on database failure or invalid data
+     * @throws IOException if the consumer fails
+     */
+    public String forEachEventPage(String username, PageRequest page, RowConsumer<Event> consumer)
+            throws DataAccessException, IOException {
+        StringBuilder sql = new StringBuilder("select event_id, username, person_id, latitude, longitude, " +
+                "country, city, event_type, year from events where username = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(username);
+        if (page.getEventType() != null) {
+            sql.append(" and event_type = ? collate nocase");
+            params.add(page.getEventType());
+        }
+        if (page.getPersonID() != null) {
+            sql.append(" and person_id = ?");
+            params.add(page.getPersonID());
+        }
+        if (page.getYearFrom() != null) {
+            sql.append(" and year >= ?");
+            params.add(page.getYearFrom());
+        }
+        if (page.getYearTo() != null) {
+            sql.append(" and year <= ?");
+            params.add(page.getYearTo());
+        }
+        if (page.getAfterYear() != null) {
+            sql.append(" and (year > ? or (year = ? and event_id > ?))");
+            params.add(page.getAfterYear());
+            params.add(page.getAfterYear());
+            params.add(page.getAfterEventID());
+        }
+        // One extra row tells whether there is a next page
+        sql.append(" order by year, event_id limit ?");
+        params.add(page.getLimit() + 1);
 
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            rs = stmt.executeQuery();
-            int i = 0;
-            while (rs.next()) {
-                String event_id = rs.getString(1);
-                String associatedUsername = rs.getString(2);
-                String person_id = rs.getString(3);
-                float latitude = rs.getFloat(4);
-                float longitude = rs.getFloat(5);
-                String country = rs.getString(6);
-                String city = rs.getString(7);
-                String eventType = rs.getString(8);
-                int year = rs.getInt(9);
-                foundEvents[i] = new Event(event_id, associatedUsername, person_id, latitude,
-                        longitude, country, city, eventType, year);
-                i++;
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                Event last = null;
+                for (int count = 0; rs.next(); count++) {
+                    if (count == page.getLimit()) {
+                        return PageRequest.encodeEventCursor(last.getYear(), last.getEventID());
+                    }
+                    last = new Event(rs.getString(1), rs.getString(2), rs.getString(3),
+                            rs.getFloat(4), rs.getFloat(5), rs.getString(6), rs.getString(7),
+                            rs.getString(8), rs.getInt(9));
+                    consumer.accept(last);
+                }
+                return null;
             }
         }
         catch (SQLException e) {
-            throw new DataAccessException("Error getting persons");
+            throw new DataAccessException("Error getting events");
         }
-        finally {
-            if (rs != null) {
-                try {
-                    rs.close();
-                } catch (SQLException e) {
-                    e.printStackTrace();
+    }
+
+    /**
+     * Stream the events associated with the given username that were written after a revision
+     * @param username Username of currently logged-in user, authenticated via AuthToken
+     * @param since Revision the client last synced, -1 for all
+     * @param consumer Receives each event
+     * @return number of events read
+     * @throws DataAccessException on database failure or invalid data
+     * @throws IOException if the consumer fails
+     */
+    public int forEachEventSince(String username, long since, RowConsumer<Event> consumer)
+            throws DataAccessException, IOException {
+        String sql = "select event_id, username, person_id, latitude, longitude, country, city, event_type, year " +
+                "from events where username = ? and revision > ? order by revision";
+        int count = 0;
+
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sql)) {
+            stmt.setString(1, username);
+            stmt.setLong(2, since);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(new Event(rs.getString(1), rs.getString(2), rs.getString(3),
+                            rs.getFloat(4), rs.getFloat(5), rs.getString(6), rs.getString(7),
+                            rs.getString(8), rs.getInt(9)));
+                    count++;
                 }
             }
         }
-        return foundEvents;
+        catch (SQLException e) {
+            throw new DataAccessException("Error getting events");
+        }
+        return count;
     }
 
     /**
@@ -0,0 +1,397 @@
+package dao;
+
+import model.Event;
+import model.Person;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Per-user cache of all persons and events, bounded by an estimate of their memory use and evicted least
+ * recently used first. Services that write a user's tree invalidate it after committing. Each user also has a
+ * version, bumped on every invalidation; a reader takes the version before querying and its result is only
+ * cached if the version has not moved, so a read that raced a write can never cache the old tree. Versions only
+ * grow, and once too many users have their own, all of them move to a new epoch so the table stays bounded.
+ * Cached arrays are shared between requests and must not be modified.
+ */
+public class FamilyTreeCache {
+    private static final FamilyTreeCache instance = new FamilyTreeCache(64L * 1024 * 1024);
+
+    /**
+     * Estimated bytes of one cached object before its strings
+     */
+    private static final int OBJECT_OVERHEAD = 64;
+    /**
+     * Estimated bytes of one cached string before its characters
+     */
+    private static final int STRING_OVERHEAD = 40;
+    /**
+     * Most users given their own version before every version is moved to a new epoch
+     */
+    private static final int MAX_VERSIONS = 10_000;
+
+    /**
+     * Maximum estimated bytes of cached trees, 0 disables caching
+     */
+    private volatile long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    /**
+     * Invalidation count per database and user since the epoch began
+     */
+    private final Map<String, Long> versions = new HashMap<>();
+    /**
+     * Count of full invalidations and version resets, the high half of every version
+     */
+    private long epoch;
+    private long totalBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    FamilyTreeCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the process-wide cache
+     * @return shared cache
+     */
+    public static FamilyTreeCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Change the memory bound; trees over the new bound are evicted on the next insert
+     * @param newMaxBytes Maximum estimated bytes of cached trees, 0 disables caching
+     */
+    public void configure(long newMaxBytes) {
+        maxBytes = newMaxBytes;
+        if (newMaxBytes == 0) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Current version of a user's tree, to be passed back when caching what was read under it
+     * @param dbPath Path to database
+     * @param username Username of tree owner
+     * @return version
+     */
+    public long version(String dbPath, String username) {
+        synchronized (entries) {
+            return (epoch << 32) + versions.getOrDefault(key(dbPath, username), 0L);
+        }
+    }
+
+    /**
+     * Look up a user's persons
+     * @param dbPath Path to database
+     * @param username Username of tree owner
+     * @return cached persons (empty if the user has none), or null if not cached
+     */
+    public Person[] getPersons(String dbPath, String username) {
+        synchronized (entries) {
+            Entry entry = entries.get(key(dbPath, username));
+            return count(entry == null ? null : entry.persons);
+        }
+    }
+
+    /**
+     * Look up a user's events
+     * @param dbPath Path to database
+     * @param username Username of tree owner
+     * @return cached events (empty if the user has none), or null if not cached
+     */
+    public Event[] getEvents(String dbPath, String username) {
+        synchronized (entries) {
+            Entry entry = entries.get(key(dbPath, username));
+            return count(entry == null ? null : entry.events);
+        }
+    }
+
+    /**
+     * Cache a user's persons, unless the tree changed since they were read
+     * @param dbPath Path to database
+     * @param username Username of tree owner
+     * @param version Version taken before the persons were read
+     * @param persons All of the user's persons, empty if none
+     */
+    public void putPersons(String dbPath, String username, long version, Person[] persons) {
+        if (maxBytes <= 0) {
+            return;
+        }
+        long weight = OBJECT_OVERHEAD;
+        for (Person person : persons) {
+            weight += weigh(person);
+        }
+        synchronized (entries) {
+            Entry entry = entryFor(dbPath, username, version);
+            if (entry != null) {
+                totalBytes += weight - entry.personsWeight;
+                entry.persons = persons;
+                entry.personsWeight = weight;
+                evict();
+            }
+        }
+    }
+
+    /**
+     * Cache a user's events, unless the tree changed since they were read
+     * @param dbPath Path to database
+     * @param username Username of tree owner
+     * @param version Version taken before the events were read
+     * @param events All of the user's events, empty if none
+     */
+    public void putEvents(String dbPath, String username, long version, Event[] events) {
+        if (maxBytes <= 0) {
+            return;
+        }
+        long weight = OBJECT_OVERHEAD;
+        for (Event event : events) {
+            weight += weigh(event);
+        }
+        synchronized (entries) {
+            Entry entry = entryFor(dbPath, username, version);
+            if (entry != null) {
+                totalBytes += weight - entry.eventsWeight;
+                entry.events = events;
+                entry.eventsWeight = weight;
+                evict();
+            }
+        }
+    }
+
+    /**
+     * Start keeping a user's persons as they are streamed, to pass to putPersons
+     * @return collector that stops keeping rows once they could not be cached
+     */
+    public Collector<Person> collectPersons() {
+        return new Collector<>(maxBytes, FamilyTreeCache::weigh);
+    }
+
+    /**
+     * Start keeping a user's events as they are streamed, to pass to putEvents
+     * @return collector that stops keeping rows once they could not be cached
+     */
+    public Collector<Event> collectEvents() {
+        return new Collector<>(maxBytes, FamilyTreeCache::weigh);
+    }
+
+    /**
+     * Drop a user's tree and bump its version, called after a write to the user's persons or events commits
+     * @param dbPath Path to database
+     * @param username Username of tree owner
+     */
+    public void invalidate(String dbPath, String username) {
+        String key = key(dbPath, username);
+        synchronized (entries) {
+            if (versions.size() >= MAX_VERSIONS && !versions.containsKey(key)) {
+                // Rather than track another user, move every version past any a reader may hold. Cached trees
+                // stay, since each was current when cached and is removed by its owner's next invalidation.
+                epoch++;
+                versions.clear();
+            }
+            versions.merge(key, 1L, Long::sum);
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                totalBytes -= entry.weight();
+            }
+        }
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * Drop every cached tree and bump every version, called after a clear or load commits
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            epoch++;
+            versions.clear();
+            entries.clear();
+            totalBytes = 0;
+        }
+        invalidations.incrementAndGet();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Estimated memory held by cached trees
+     * @return estimated bytes
+     */
+    public long getBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * Fraction of lookups answered from the cache
+     * @return hit ratio between 0 and 1
+     */
+    public double getHitRatio() {
+        long hitCount = getHits();
+        long total = hitCount + getMisses();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("family tree cache: users=%d bytes=%d hits=%d misses=%d hitRatio=%.2f " +
+                        "evictions=%d invalidations=%d", size(), getBytes(), getHits(), getMisses(), getHitRatio(),
+                getEvictions(), getInvalidations());
+    }
+
+    private <T> T count(T cached) {
+        if (cached != null) {
+            hits.incrementAndGet();
+        }
+        else {
+            misses.incrementAndGet();
+        }
+        return cached;
+    }
+
+    /**
+     * Entry to fill in, or null if the version moved since the caller read. Caller holds the lock.
+     */
+    private Entry entryFor(String dbPath, String username, long version) {
+        String key = key(dbPath, username);
+        if ((epoch << 32) + versions.getOrDefault(key, 0L) != version) {
+            return null;
+        }
+        return entries.computeIfAbsent(key, k -> new Entry());
+    }
+
+    /**
+     * Evict least recently used trees until under the bound. Caller holds the lock.
+     */
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().weight();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static String key(String dbPath, String username) {
+        return dbPath + '\0' + username;
+    }
+
+    private static long weigh(Person person) {
+        return OBJECT_OVERHEAD + weigh(person.getPersonID()) + weigh(person.getAssociatedUsername())
+                + weigh(person.getFirstName()) + weigh(person.getLastName()) + weigh(person.getGender())
+                + weigh(person.getFatherID()) + weigh(person.getMotherID()) + weigh(person.getSpouseID());
+    }
+
+    private static long weigh(Event event) {
+        return OBJECT_OVERHEAD + weigh(event.getEventID()) + weigh(event.getUsername())
+                + weigh(event.getPersonID()) + weigh(event.getCountry()) + weigh(event.getCity())
+                + weigh(event.getEventType());
+    }
+
+    private static long weigh(String value) {
+        return value == null ? 0 : STRING_OVERHEAD + value.length();
+    }
+
+    /**
+     * Rows of one user's tree kept while they are streamed. Once the rows would not fit in the cache, or
+     * caching is off, they are dropped and only counted, so streaming memory does not grow with the tree.
+     * @param <T> Person or Event
+     */
+    public static class Collector<T> {
+        private final long maxBytes;
+        private final ToLongFunction<T> weigher;
+        /**
+         * Rows kept so far, null once they stopped being kept
+         */
+        private List<T> rows;
+        private long weight = OBJECT_OVERHEAD;
+        private int count;
+
+        private Collector(long maxBytes, ToLongFunction<T> weigher) {
+            this.maxBytes = maxBytes;
+            this.weigher = weigher;
+            this.rows = maxBytes > 0 ? new ArrayList<>() : null;
+        }
+
+        /**
+         * Count a row, keeping it if the rows so far still fit in the cache
+         * @param row Row just read
+         */
+        public void add(T row) {
+            count++;
+            if (rows == null) {
+                return;
+            }
+            weight += weigher.applyAsLong(row);
+            if (weight > maxBytes) {
+                rows = null;
+                return;
+            }
+            rows.add(row);
+        }
+
+        /**
+         * @return number of rows added, kept or not
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * @return whether every row added was kept
+         */
+        public boolean isComplete() {
+            return rows != null;
+        }
+
+        /**
+         * Get the kept rows
+         * @param empty Empty array of the row type
+         * @return every row added, or null if they were not all kept
+         */
+        public T[] toArray(T[] empty) {
+            return rows == null ? null : rows.toArray(empty);
+        }
+    }
+
+    private static class Entry {
+        Person[] persons;
+        Event[] events;
+        long personsWeight;
+        long eventsWeight;
+
+        long weight() {
+            return personsWeight + eventsWeight;
+        }
+    }
+}
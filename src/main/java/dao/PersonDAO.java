@@ -1,9 +1,15 @@
 package dao;
 
+import java.io.IOException;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import model.Person;
 import model.User;
+import request.PageRequest;
 
 /**
  * Interfaces with persons in database
@@ -29,9 +35,9 @@ public class PersonDAO {
      */
     public void insert(Person person) throws DataAccessException {
         String sqlStmt = "insert into persons (person_id, username, first_name, last_name, gender, father_id," +
-                " mother_id, spouse_id) values (?, ?, ?, ?, ?, ?, ?, ?)";
+                " mother_id, spouse_id, revision) values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement stmt = conn.prepareStatement(sqlStmt)) {
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sqlStmt)) {
             stmt.setString(1, person.getPersonID());
             stmt.setString(2, person.getAssociatedUsername());
             stmt.setString(3, person.getFirstName());
@@ -40,6 +46,7 @@ public class PersonDAO {
             stmt.setString(6, person.getFatherID());
             stmt.setString(7, person.getMotherID());
             stmt.setString(8, person.getSpouseID());
+            stmt.setLong(9, new SyncDAO(conn).nextRevision(person.getAssociatedUsername()));
 
             stmt.executeUpdate();
         }
@@ -48,16 +55,67 @@ public class PersonDAO {
         }
     }
 
+    /**
+     * Insert persons into database in batches, reusing one prepared statement
+     * @param persons Persons to insert
+     * @throws DataAccessException on failure to insert (person already exists or database failure)
+     */
+    public void insertAll(Collection<Person> persons) throws DataAccessException {
+        insertAll(persons, Database.BATCH_SIZE);
+    }
+
+    /**
+     * Insert persons into database in batches, reusing one prepared statement
+     * @param persons Persons to insert
+     * @param batchSize Number of rows sent to the database per batch
+     * @throws DataAccessException on failure to insert (person already exists or database failure)
+     */
+    public void insertAll(Collection<Person> persons, int batchSize) throws DataAccessException {
+        String sqlStmt = "insert into persons (person_id, username, first_name, last_name, gender, father_id," +
+                " mother_id, spouse_id, revision) values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        SyncDAO sync = new SyncDAO(conn);
+        Map<String, Long> revisions = new HashMap<>();
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sqlStmt)) {
+            int pending = 0;
+            for (Person person : persons) {
+                stmt.setString(1, person.getPersonID());
+                stmt.setString(2, person.getAssociatedUsername());
+                stmt.setString(3, person.getFirstName());
+                stmt.setString(4, person.getLastName());
+                stmt.setString(5, person.getGender());
+                stmt.setString(6, person.getFatherID());
+                stmt.setString(7, person.getMotherID());
+                stmt.setString(8, person.getSpouseID());
+                stmt.setLong(9, sync.revisionFor(person.getAssociatedUsername(), revisions));
+                stmt.addBatch();
+
+                if (++pending == batchSize) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+        catch (SQLException e) {
+            throw new DataAccessException(e.getMessage());
+        }
+    }
+
     /**
      * Find person in database based on given personID
      * @param personID id of person to find
      * @return Person object found, null if not found
      */
     public Person getPersonByID(String personID) throws DataAccessException {
-        String sql = "select * from persons where person_id = '" + personID + "'";
+        String sql = "select person_id, username, first_name, last_name, gender, father_id, mother_id, spouse_id " +
+                "from persons where person_id = ?";
         ResultSet rs = null;
 
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sql)) {
+            stmt.setString(1, personID);
             rs = stmt.executeQuery();
             if (!rs.next()) {
                 return null;
@@ -92,7 +150,7 @@ public class PersonDAO {
      */
     public void deletePersons() throws DataAccessException {
         String sql = "delete from persons";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sql)) {
             stmt.executeUpdate();
         }
         catch (SQLException e) {
@@ -100,71 +158,166 @@ public class PersonDAO {
         }
     }
 
+    /**
+     * Get all persons associated with the given username in a single query
+     * @param username Username of currently logged-in user, authenticated via AuthToken
+     * @return array of persons, null if the user has none
+     * @throws DataAccessException on database failure or invalid data
+     */
     public Person[] getAllPersonsByUsername(String username) throws DataAccessException {
-        String countSql = "select count(*) from persons where username = '" + username + "'";
-        String sql = "select * from persons where username = '" + username + "'";
-        ResultSet rs = null;
-        Person[] foundPersons;
-        int numPersons;
+        ArrayList<Person> foundPersons = new ArrayList<>();
+        try {
+            forEachPersonByUsername(username, foundPersons::add);
+        }
+        catch (IOException e) {
+            // ArrayList.add does not throw
+            throw new DataAccessException(e.getMessage());
+        }
+        return foundPersons.isEmpty() ? null : foundPersons.toArray(new Person[0]);
+    }
+
+    /**
+     * Stream all persons associated with the given username to a consumer as they are read
+     * @param username Username of currently logged-in user, authenticated via AuthToken
+     * @param consumer Receives each person
+     * @return number of persons read
+     * @throws DataAccessException on database failure or invalid data
+     * @throws IOException if the consumer fails
+     */
+    public int forEachPersonByUsername(String username, RowConsumer<Person> consumer)
+            throws DataAccessException, IOException {
+        // Columns listed explicitly so the column numbers below do not depend on the table layout. Rows come in
+        // the order they were inserted, which the username index gives without sorting.
+        String sql = "select person_id, username, first_name, last_name, gender, father_id, mother_id, spouse_id " +
+                "from persons where username = ? order by rowid";
+        int count = 0;
 
-        try (PreparedStatement countStmt = conn.prepareStatement(countSql)) {
-            rs = countStmt.executeQuery();
-            numPersons = rs.getInt(1);
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sql)) {
+            stmt.setString(1, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(new Person(rs.getString(1), rs.getString(2), rs.getString(3),
+                            rs.getString(4), rs.getString(5), rs.getString(6), rs.getString(7),
+                            rs.getString(8)));
+                    count++;
+                }
+            }
         }
         catch (SQLException e) {
-            throw new DataAccessException("Unable to count persons");
+            throw new DataAccessException("Error getting persons");
         }
+        return count;
+    }
 
-        if (numPersons == 0) return null;
-        else foundPersons = new Person[numPersons];
+    /**
+     * Stream one page of the persons associated with the given username, in ID order
+     * @param username Username of currently logged-in user, authenticated via AuthToken
+     * @param page Page to read
+     * @param consumer Receives each person
+     * @return cursor for the next page, or null if this was the last
+     * @throws DataAccessException on database failure or invalid data
+     * @throws IOException if the consumer fails
+     */
+    public String forEachPersonPage(String username, PageRequest page, RowConsumer<Person> consumer)
+            throws DataAccessException, IOException {
+        StringBuilder sql = new StringBuilder("select person_id, username, first_name, last_name, gender, " +
+                "father_id, mother_id, spouse_id from persons where username = ?");
+        if (page.getAfter() != null) {
+            sql.append(" and person_id > ?");
+        }
+        // One extra row tells whether there is a next page
+        sql.append(" order by person_id limit ?");
 
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            rs = stmt.executeQuery();
-            int i = 0;
-            while (rs.next()) {
-                String person_id = rs.getString(1);
-                String associatedUsername = rs.getString(2);
-                String firstName = rs.getString(3);
-                String lastName = rs.getString(4);
-                String gender = rs.getString(5);
-                String fatherID = rs.getString(6);
-                String motherID = rs.getString(7);
-                String spouseID = rs.getString(8);
-                foundPersons[i] = new Person(person_id, associatedUsername, firstName, lastName,
-                                            gender, fatherID, motherID, spouseID);
-                i++;
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sql.toString())) {
+            int index = 1;
+            stmt.setString(index++, username);
+            if (page.getAfter() != null) {
+                stmt.setString(index++, page.getAfter());
+            }
+            stmt.setInt(index, page.getLimit() + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                String lastID = null;
+                for (int count = 0; rs.next(); count++) {
+                    if (count == page.getLimit()) {
+                        return PageRequest.encodeCursor(lastID);
+                    }
+                    lastID = rs.getString(1);
+                    consumer.accept(new Person(lastID, rs.getString(2), rs.getString(3),
+                            rs.getString(4), rs.getString(5), rs.getString(6), rs.getString(7),
+                            rs.getString(8)));
+                }
+                return null;
             }
         }
         catch (SQLException e) {
             throw new DataAccessException("Error getting persons");
         }
-        finally {
-            if (rs != null) {
-                try {
-                    rs.close();
-                } catch (SQLException e) {
-                    e.printStackTrace();
+    }
+
+    /**
+     * Stream the persons associated with the given username that were written after a revision
+     * @param username Username of currently logged-in user, authenticated via AuthToken
+     * @param since Revision the client last synced, -1 for all
+     * @param consumer Receives each person
+     * @return number of persons read
+     * @throws DataAccessException on database failure or invalid data
+     * @throws IOException if the consumer fails
+     */
+    public int forEachPersonSince(String username, long since, RowConsumer<Person> consumer)
+            throws DataAccessException, IOException {
+        String sql = "select person_id, username, first_name, last_name, gender, father_id, mother_id, spouse_id " +
+                "from persons where username = ? and revision > ? order by revision";
+        int count = 0;
+
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sql)) {
+            stmt.setString(1, username);
+            stmt.setLong(2, since);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(new Person(rs.getString(1), rs.getString(2), rs.getString(3),
+                            rs.getString(4), rs.getString(5), rs.getString(6), rs.getString(7),
+                            rs.getString(8)));
+                    count++;
                 }
             }
         }
-
-        return foundPersons;
+        catch (SQLException e) {
+            throw new DataAccessException("Error getting persons");
+        }
+        return count;
     }
 
     /**
-     * Delete all persons associated to username
+     * Delete all persons and events associated to username with one indexed delete each, without relying on
+     * foreign key cascades, so the delete can share a transaction with the inserts that replace the tree
+     * @param username Owner of the tree
+     * @throws DataAccessException on database failure
      */
-    public void deletePersonsByUsername(String username) throws DataAccessException {
-        String sql = "delete from persons where username = '" + username + "'";
-        try {
-            Statement foreignStmt = conn.createStatement();
-            foreignStmt.executeUpdate("PRAGMA foreign_keys=ON;");
+    public void deleteTreeByUsername(String username) throws DataAccessException {
+        try (PreparedStatement events = StatementCache.prepare(conn, "delete from events where username = ?");
+             PreparedStatement persons = StatementCache.prepare(conn, "delete from persons where username = ?")) {
+            new SyncDAO(conn).tombstoneTree(username, true);
+            events.setString(1, username);
+            events.executeUpdate();
+            persons.setString(1, username);
+            persons.executeUpdate();
         }
         catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
+    }
 
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+    /**
+     * Delete all persons associated to username
+     */
+    public void deletePersonsByUsername(String username) throws DataAccessException {
+        // Cascades to events only when conn enforces foreign keys (Database.openWithForeignKey)
+        String sql = "delete from persons where username = ?";
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sql);
+             PreparedStatement pragma = StatementCache.prepare(conn, "pragma foreign_keys");
+             ResultSet foreignKeys = pragma.executeQuery()) {
+            new SyncDAO(conn).tombstoneTree(username, foreignKeys.next() && foreignKeys.getInt(1) == 1);
+            stmt.setString(1, username);
             stmt.executeUpdate();
         }
         catch (SQLException e) {
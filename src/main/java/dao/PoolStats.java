@@ -0,0 +1,117 @@
+package dao;
+
+/**
+ * Snapshot of a connection pool's usage, for sizing the pool
+ */
+public class PoolStats {
+    /**
+     * Path to the pooled database
+     */
+    private final String dbPath;
+    /**
+     * How the pooled connections are configured
+     */
+    private final ConnectionPool.Mode mode;
+    /**
+     * Maximum number of connections
+     */
+    private final int size;
+    /**
+     * Connections currently checked out
+     */
+    private final int active;
+    /**
+     * Connections open and waiting to be checked out
+     */
+    private final int idle;
+    /**
+     * Total successful checkouts
+     */
+    private final long checkouts;
+    /**
+     * Checkouts that gave up waiting for a connection
+     */
+    private final long timeouts;
+    /**
+     * Connections reported as held past the leak threshold
+     */
+    private final long leaks;
+    /**
+     * Checkout counts per wait time bucket, see getWaitBucketsMicros
+     */
+    private final long[] waitHistogram;
+
+    PoolStats(String dbPath, ConnectionPool.Mode mode, int size, int active, int idle, long checkouts,
+              long timeouts, long leaks, long[] waitHistogram) {
+        this.dbPath = dbPath;
+        this.mode = mode;
+        this.size = size;
+        this.active = active;
+        this.idle = idle;
+        this.checkouts = checkouts;
+        this.timeouts = timeouts;
+        this.leaks = leaks;
+        this.waitHistogram = waitHistogram;
+    }
+
+    public String getDbPath() {
+        return dbPath;
+    }
+
+    public ConnectionPool.Mode getMode() {
+        return mode;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public long getCheckouts() {
+        return checkouts;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public long getLeaks() {
+        return leaks;
+    }
+
+    /**
+     * Checkout counts per wait time bucket; bucket i counts waits up to getWaitBucketsMicros()[i], the last
+     * bucket counts everything longer
+     * @return histogram counts
+     */
+    public long[] getWaitHistogram() {
+        return waitHistogram.clone();
+    }
+
+    /**
+     * Upper bounds of the wait time histogram buckets
+     * @return bucket bounds in microseconds
+     */
+    public static long[] getWaitBucketsMicros() {
+        return ConnectionPool.WAIT_BUCKETS_MICROS.clone();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder histogram = new StringBuilder();
+        long[] bounds = ConnectionPool.WAIT_BUCKETS_MICROS;
+        for (int i = 0; i < waitHistogram.length; i++) {
+            histogram.append(i < bounds.length ? "<=" + bounds[i] + "us" : ">" + bounds[bounds.length - 1] + "us")
+                    .append('=').append(waitHistogram[i]).append(i + 1 < waitHistogram.length ? ", " : "");
+        }
+        return String.format("%s [%s]: size=%d active=%d idle=%d checkouts=%d timeouts=%d leaks=%d wait={%s}",
+                dbPath, mode, size, active, idle, checkouts, timeouts, leaks, histogram);
+    }
+}
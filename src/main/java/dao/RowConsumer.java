@@ -0,0 +1,16 @@
+package dao;
+
+import java.io.IOException;
+
+/**
+ * Receives rows one at a time as a query streams them
+ * @param <T> Row type
+ */
+public interface RowConsumer<T> {
+    /**
+     * Handle one row
+     * @param row Row read from the database
+     * @throws IOException on failure to pass the row on (e.g. writing it to a response)
+     */
+    void accept(T row) throws IOException;
+}
@@ -0,0 +1,176 @@
+package dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Brings a database up to date by applying versioned migration scripts in order
+ */
+public class SchemaMigrator {
+    /**
+     * Default directory holding migration scripts
+     */
+    public static final String MIGRATIONS_DIR = "sql" + File.separator + "migrations";
+    /**
+     * Migration script names: V{version}__{description}.sql
+     */
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    /**
+     * Path to database
+     */
+    private final String dbPath;
+    /**
+     * Directory holding migration scripts
+     */
+    private final Path migrationsDir;
+
+    /**
+     * Create new SchemaMigrator using the default migrations directory
+     * @param dbPath Path to database
+     */
+    public SchemaMigrator(String dbPath) {
+        this(dbPath, Paths.get(MIGRATIONS_DIR));
+    }
+
+    /**
+     * Create new SchemaMigrator
+     * @param dbPath Path to database
+     * @param migrationsDir Directory holding migration scripts
+     */
+    public SchemaMigrator(String dbPath, Path migrationsDir) {
+        this.dbPath = dbPath;
+        this.migrationsDir = migrationsDir;
+    }
+
+    /**
+     * Apply every migration newer than the database's schema version. Each migration runs in its own
+     * transaction together with its schema_version row, so a failed migration leaves the database at the
+     * previous version.
+     * @return schema version after migrating
+     * @throws DataAccessException on unreadable scripts or failure to apply a migration
+     */
+    public int migrate() throws DataAccessException {
+        List<Migration> migrations = findMigrations();
+        Database db = new Database();
+        Connection conn = db.open(dbPath);
+        boolean released = false;
+        try {
+            int version = currentVersion(conn);
+            for (Migration migration : migrations) {
+                if (migration.version <= version) {
+                    continue;
+                }
+                System.out.printf("Applying migration %d: %s%n", migration.version, migration.description);
+                try (Statement stmt = conn.createStatement()) {
+                    for (String sql : migration.statements) {
+                        stmt.executeUpdate(sql);
+                    }
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "insert into schema_version (version, description, applied_at) values (?, ?, ?)")) {
+                    stmt.setInt(1, migration.version);
+                    stmt.setString(2, migration.description);
+                    stmt.setLong(3, System.currentTimeMillis());
+                    stmt.executeUpdate();
+                }
+                conn.commit();
+                version = migration.version;
+            }
+            released = true;
+            db.close(true);
+            return version;
+        }
+        catch (SQLException e) {
+            throw new DataAccessException("Unable to migrate schema: " + e.getMessage());
+        }
+        finally {
+            if (!released) {
+                db.close(false);
+            }
+        }
+    }
+
+    /**
+     * Read the version of the most recently applied migration, creating the version table if needed
+     */
+    private int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("create table if not exists schema_version (version integer not null primary key, " +
+                    "description varchar(255) not null, applied_at integer not null)");
+            try (ResultSet rs = stmt.executeQuery("select max(version) from schema_version")) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private List<Migration> findMigrations() throws DataAccessException {
+        List<Migration> migrations = new ArrayList<>();
+        try (Stream<Path> files = Files.list(migrationsDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Matcher matcher = SCRIPT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    String script = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+                    migrations.add(new Migration(Integer.parseInt(matcher.group(1)),
+                            matcher.group(2).replace('_', ' '), splitStatements(script)));
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new DataAccessException("Unable to read migrations from " + migrationsDir);
+        }
+        migrations.sort(Comparator.comparingInt(migration -> migration.version));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version == migrations.get(i - 1).version) {
+                throw new DataAccessException("Duplicate migration version " + migrations.get(i).version);
+            }
+        }
+        return migrations;
+    }
+
+    /**
+     * Split a script into statements, dropping "--" comments. Scripts must not contain semicolons inside
+     * string literals or triggers.
+     */
+    private static List<String> splitStatements(String script) {
+        StringBuilder stripped = new StringBuilder();
+        for (String line : script.split("\\R")) {
+            int comment = line.indexOf("--");
+            stripped.append(comment >= 0 ? line.substring(0, comment) : line).append('\n');
+        }
+        List<String> statements = new ArrayList<>();
+        for (String statement : stripped.toString().split(";")) {
+            if (!statement.isBlank()) {
+                statements.add(statement.trim());
+            }
+        }
+        return statements;
+    }
+
+    private static class Migration {
+        final int version;
+        final String description;
+        final List<String> statements;
+
+        Migration(int version, String description, List<String> statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = statements;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+
+/**
+ * Prepared statements kept open on a pooled connection and reused by SQL text, so repeated DAO calls skip
+ * SQLite's parse and plan. Each connection's cache holds at most a fixed number of statements and evicts the
+ * least recently used. DAOs keep closing statements with try-with-resources: closing a cached statement
+ * clears its parameters and returns it to the cache instead. Every statement handed out, cached or not, times
+ * its execute calls into a histogram labelled with the statement's operation and table.
+ *
+ * A pooled connection is used by one thread at a time, so a cache needs no locking of its own.
+ */
+public class StatementCache {
+    private static final Map<Connection, StatementCache> caches = new ConcurrentHashMap<>();
+    private static volatile int maxStatements = 64;
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+    /**
+     * Execution time histogram for each SQL text seen
+     */
+    private static final Map<String, Histogram> latencies = new ConcurrentHashMap<>();
+
+    private final Connection conn;
+    /**
+     * Statements by SQL text, least recently used first
+     */
+    private final LinkedHashMap<String, Cached> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    private StatementCache(Connection conn) {
+        this.conn = conn;
+    }
+
+    /**
+     * Set the number of statements kept per connection; 0 turns caching off for statements prepared from now on
+     * @param newMaxStatements Maximum statements per connection
+     */
+    public static void configure(int newMaxStatements) {
+        if (newMaxStatements < 0) {
+            throw new IllegalArgumentException("Statement cache size must not be negative");
+        }
+        maxStatements = newMaxStatements;
+    }
+
+    /**
+     * Start caching statements for a connection the pool has just opened
+     * @param conn New pooled connection
+     */
+    static void attach(Connection conn) {
+        caches.put(conn, new StatementCache(conn));
+    }
+
+    /**
+     * Close a connection's cached statements before the pool closes it
+     * @param conn Pooled connection being discarded
+     */
+    static void detach(Connection conn) {
+        StatementCache cache = caches.remove(conn);
+        if (cache != null) {
+            for (Cached cached : cache.statements.values()) {
+                cached.evict();
+            }
+            cache.statements.clear();
+        }
+    }
+
+    /**
+     * Prepare a statement, reusing the one already prepared for this SQL on a pooled connection
+     * @param conn Connection to prepare on
+     * @param sql Fixed SQL text with ? for every value
+     * @return statement that must be closed when done, as with Connection.prepareStatement
+     * @throws SQLException on failure to prepare
+     */
+    static PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        if (conn instanceof BorrowedConnection borrowed) {
+            conn = borrowed.target();
+        }
+        StatementCache cache = caches.get(conn);
+        if (cache == null || maxStatements == 0) {
+            return new TimedStatement(conn.prepareStatement(sql), latency(sql));
+        }
+        return cache.get(sql);
+    }
+
+    public static long getHits() {
+        return hits.get();
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    public static long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Describe cache usage across all connections
+     * @return one line of statistics
+     */
+    public static String stats() {
+        long hit = hits.get();
+        long total = hit + misses.get();
+        return String.format("Statement cache: %d connections, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                caches.size(), hit, total - hit, total == 0 ? 0.0 : 100.0 * hit / total, evictions.get());
+    }
+
+    /**
+     * Execution time histogram for a statement, labelled by its operation and table
+     * @param sql Fixed SQL text
+     * @return shared histogram
+     */
+    private static Histogram latency(String sql) {
+        return latencies.computeIfAbsent(sql, key -> {
+            String[] words = key.trim().toLowerCase(Locale.ROOT).split("\\s+");
+            String table = words.length > 1 ? words[1] : "";
+            for (int i = 0; i + 1 < words.length; i++) {
+                if (words[i].equals("from") || words[i].equals("into") || words[i].equals("update")) {
+                    table = words[i + 1];
+                    break;
+                }
+            }
+            return MetricsRegistry.getInstance().histogram("fms_db_statement_duration_seconds",
+                    "Time to execute DAO statements", MetricsRegistry.labels("operation", words[0], "table", table));
+        });
+    }
+
+    private PreparedStatement get(String sql) throws SQLException {
+        Cached cached = statements.get(sql);
+        if (cached != null && cached.evicted) {
+            statements.remove(sql);
+            cached = null;
+        }
+        if (cached != null) {
+            if (cached.inUse) {
+                // Same SQL already open further up the stack; give this caller its own
+                misses.incrementAndGet();
+                return new TimedStatement(conn.prepareStatement(sql), cached.latency);
+            }
+            hits.incrementAndGet();
+            cached.inUse = true;
+            return cached;
+        }
+
+        misses.incrementAndGet();
+        cached = new Cached(conn.prepareStatement(sql), latency(sql));
+        cached.inUse = true;
+        statements.put(sql, cached);
+        Iterator<Cached> eldest = statements.values().iterator();
+        while (statements.size() > maxStatements && eldest.hasNext()) {
+            Cached evicted = eldest.next();
+            if (evicted != cached) {
+                eldest.remove();
+                evicted.evict();
+                evictions.incrementAndGet();
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * A cached statement, which returns to the cache when closed
+     */
+    private static class Cached extends TimedStatement {
+        boolean inUse;
+        /**
+         * Dropped from the cache; really closed once its current user is done
+         */
+        boolean evicted;
+
+        Cached(PreparedStatement stmt, Histogram latency) {
+            super(stmt, latency);
+        }
+
+        @Override
+        public boolean isClosed() throws SQLException {
+            return !inUse || stmt.isClosed();
+        }
+
+        /**
+         * Clear parameters and batch and hand the statement back to the cache
+         */
+        @Override
+        public void close() throws SQLException {
+            if (!inUse) {
+                return;
+            }
+            inUse = false;
+            if (evicted) {
+                stmt.close();
+                return;
+            }
+            try {
+                stmt.clearParameters();
+                stmt.clearBatch();
+            }
+            catch (SQLException e) {
+                // A statement that cannot be reset is not worth keeping
+                evicted = true;
+                stmt.close();
+            }
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                try {
+                    stmt.close();
+                }
+                catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
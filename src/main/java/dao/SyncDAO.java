@@ -0,0 +1,202 @@
+package dao;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Interfaces with the change tracking behind /sync: each user's latest revision, the floor below which
+ * clients must start over, and tombstones of deleted rows
+ */
+public class SyncDAO {
+    /**
+     * Kind of tombstone for a deleted person
+     */
+    public static final String PERSON = "p";
+    /**
+     * Kind of tombstone for a deleted event
+     */
+    public static final String EVENT = "e";
+
+    /**
+     * Connection to database
+     */
+    private Connection conn;
+
+    /**
+     * Create new SyncDAO with given connection
+     * @param conn connection with database
+     */
+    public SyncDAO(Connection conn) {
+        this.conn = conn;
+    }
+
+    /**
+     * Take the next revision of a user's tree for a write in the caller's transaction
+     * @param username Owner of the rows being written
+     * @return new revision, greater than any before it for this user
+     * @throws DataAccessException on database failure
+     */
+    public long nextRevision(String username) throws DataAccessException {
+        try (PreparedStatement create = StatementCache.prepare(conn,
+                "insert or ignore into sync_state (username, revision, floor) values (?, 0, 0)");
+             PreparedStatement bump = StatementCache.prepare(conn,
+                     "update sync_state set revision = revision + 1 where username = ?")) {
+            create.setString(1, username);
+            create.executeUpdate();
+            bump.setString(1, username);
+            bump.executeUpdate();
+        }
+        catch (SQLException e) {
+            throw new DataAccessException(e.getMessage());
+        }
+        return getRevision(username);
+    }
+
+    /**
+     * Revision for a row in a multi-row write: each user gets one new revision per write
+     * @param username Owner of the row
+     * @param taken Revisions already taken in this write, by username
+     * @return revision for the row
+     * @throws DataAccessException on database failure
+     */
+    long revisionFor(String username, Map<String, Long> taken) throws DataAccessException {
+        Long revision = taken.get(username);
+        if (revision == null) {
+            revision = nextRevision(username);
+            taken.put(username, revision);
+        }
+        return revision;
+    }
+
+    /**
+     * Latest revision of a user's tree
+     * @param username Owner of the tree
+     * @return revision, 0 if nothing has been written
+     * @throws DataAccessException on database failure
+     */
+    public long getRevision(String username) throws DataAccessException {
+        return getState(username, "revision");
+    }
+
+    /**
+     * Oldest revision a client can sync from without starting over
+     * @param username Owner of the tree
+     * @return floor, 0 if every revision can be synced from
+     * @throws DataAccessException on database failure
+     */
+    public long getFloor(String username) throws DataAccessException {
+        return getState(username, "floor");
+    }
+
+    /**
+     * Record tombstones for all of a user's persons, and their events if deleting them cascades, before the
+     * whole tree is deleted. The user's earlier tombstones are dropped and the floor raised to match, since a
+     * client synced before them would have had every row in this delete or already been told to start over.
+     * @param username Owner of the tree being deleted
+     * @param cascadesToEvents Whether the delete also removes the persons' events
+     * @throws DataAccessException on database failure
+     */
+    public void tombstoneTree(String username, boolean cascadesToEvents) throws DataAccessException {
+        long revision = nextRevision(username);
+        try (PreparedStatement floor = StatementCache.prepare(conn, "update sync_state set floor = max(floor, " +
+                "coalesce((select max(revision) from tombstones where username = ?), 0)) where username = ?");
+             PreparedStatement prune = StatementCache.prepare(conn, "delete from tombstones where username = ?");
+             PreparedStatement persons = StatementCache.prepare(conn, "insert into tombstones (username, kind, id, " +
+                     "revision) select username, ?, person_id, ? from persons where username = ?");
+             PreparedStatement events = StatementCache.prepare(conn, "insert into tombstones (username, kind, id, " +
+                     "revision) select username, ?, event_id, ? from events where person_id in " +
+                     "(select person_id from persons where username = ?)")) {
+            floor.setString(1, username);
+            floor.setString(2, username);
+            floor.executeUpdate();
+            prune.setString(1, username);
+            prune.executeUpdate();
+            persons.setString(1, PERSON);
+            persons.setLong(2, revision);
+            persons.setString(3, username);
+            persons.executeUpdate();
+            if (cascadesToEvents) {
+                events.setString(1, EVENT);
+                events.setLong(2, revision);
+                events.setString(3, username);
+                events.executeUpdate();
+            }
+        }
+        catch (SQLException e) {
+            throw new DataAccessException(e.getMessage());
+        }
+    }
+
+    /**
+     * Stream the IDs of a user's rows deleted after a revision
+     * @param username Owner of the tree
+     * @param since Revision the client last synced
+     * @param kind {@link #PERSON} or {@link #EVENT}
+     * @param consumer Receives each ID
+     * @return number of IDs read
+     * @throws DataAccessException on database failure
+     * @throws IOException if the consumer fails
+     */
+    public int forEachTombstoneSince(String username, long since, String kind, RowConsumer<String> consumer)
+            throws DataAccessException, IOException {
+        String sql = "select id from tombstones where username = ? and revision > ? and kind = ? order by revision";
+        int count = 0;
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sql)) {
+            stmt.setString(1, username);
+            stmt.setLong(2, since);
+            stmt.setString(3, kind);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(rs.getString(1));
+                    count++;
+                }
+            }
+        }
+        catch (SQLException e) {
+            throw new DataAccessException("Error getting deleted rows");
+        }
+        return count;
+    }
+
+    /**
+     * Make every client start over, used when all tables are cleared. Revisions keep counting so a user
+     * loaded again under the same name never reuses one.
+     * @throws DataAccessException on database failure
+     */
+    public void resetAll() throws DataAccessException {
+        try (PreparedStatement bump = StatementCache.prepare(conn,
+                "update sync_state set revision = revision + 1, floor = revision + 1");
+             PreparedStatement prune = StatementCache.prepare(conn, "delete from tombstones")) {
+            bump.executeUpdate();
+            prune.executeUpdate();
+        }
+        catch (SQLException e) {
+            throw new DataAccessException(e.getMessage());
+        }
+    }
+
+    private long getState(String username, String column) throws DataAccessException {
+        try (PreparedStatement stmt = StatementCache.prepare(conn,
+                "select " + column + " from sync_state where username = ?")) {
+            stmt.setString(1, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+        catch (SQLException e) {
+            throw new DataAccessException(e.getMessage());
+        }
+    }
+
+    /**
+     * Set the connection
+     * @param conn New connection
+     */
+    public void setConnection(Connection conn) {
+        this.conn = conn;
+    }
+}
@@ -4,6 +4,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import model.User;
 
 /**
@@ -32,7 +33,7 @@ public class UserDAO {
         String sqlStmt = "insert into users (username, passwd, email, first_name, last_name, gender, person_id) " +
                             "values (?, ?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement stmt = conn.prepareStatement(sqlStmt)) {
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sqlStmt)) {
             stmt.setString(1, user.getUsername());
             stmt.setString(2, user.getPassword());
             stmt.setString(3, user.getEmail());
@@ -48,6 +49,41 @@ public class UserDAO {
         }
     }
 
+    /**
+     * Add users to the database in batches, reusing one prepared statement
+     * @param users Users to add
+     * @throws DataAccessException on user already exists, invalid data, or database failure
+     */
+    public void insertAll(Collection<User> users) throws DataAccessException {
+        String sqlStmt = "insert into users (username, passwd, email, first_name, last_name, gender, person_id) " +
+                            "values (?, ?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sqlStmt)) {
+            int pending = 0;
+            for (User user : users) {
+                stmt.setString(1, user.getUsername());
+                stmt.setString(2, user.getPassword());
+                stmt.setString(3, user.getEmail());
+                stmt.setString(4, user.getFirstName());
+                stmt.setString(5, user.getLastName());
+                stmt.setString(6, user.getGender());
+                stmt.setString(7, user.getPersonID());
+                stmt.addBatch();
+
+                if (++pending == Database.BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+        catch (SQLException e) {
+            throw new DataAccessException(e.getMessage());
+        }
+    }
+
     /**
      * Get a user from the database by username
      * @param username username of user
@@ -55,11 +91,14 @@ public class UserDAO {
      */
     public User getUserByUsername(String username) throws DataAccessException {
         String sql = "select username, passwd, email, first_name, last_name, gender, person_id " +
-                "from users where username = '" + username + "'";
+                "from users where username = ?";
         ResultSet rs = null;
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sql)) {
+            stmt.setString(1, username);
             rs = stmt.executeQuery();
-
+            if (!rs.next()) {
+                return null;
+            }
             String passwd = rs.getString(2);
             String email = rs.getString(3);
             String firstName = rs.getString(4);
@@ -83,12 +122,13 @@ public class UserDAO {
     }
 
     /**
-     * Delete all users in the database
+     * Delete all users in the database; their tokens go on cascade, so the caller invalidates AuthTokenCache
+     * once this commits
      * @throws DataAccessException on database failure or failure to delete
      */
     public void deleteUsers() throws DataAccessException {
         String sql = "delete from users";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement stmt = StatementCache.prepare(conn, sql)) {
             stmt.executeUpdate();
         }
         catch (SQLException e) {
@@ -0,0 +1,284 @@
+package handler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-memory copy of the static web files. Files are read once at startup and re-read when their size or
+ * modification time changes, checked at most once per refresh interval. Text files are also kept gzipped so
+ * they can be sent compressed without compressing them on every request.
+ */
+public class AssetCache {
+    /**
+     * Default milliseconds between checks of a cached file for changes on disk
+     */
+    private static final long REFRESH_INTERVAL_MILLIS = 2_000;
+    private static final Map<String, String> CONTENT_TYPES = Map.ofEntries(
+            Map.entry("html", "text/html; charset=utf-8"),
+            Map.entry("css", "text/css; charset=utf-8"),
+            Map.entry("js", "text/javascript; charset=utf-8"),
+            Map.entry("json", "application/json; charset=utf-8"),
+            Map.entry("txt", "text/plain; charset=utf-8"),
+            Map.entry("svg", "image/svg+xml"),
+            Map.entry("ico", "image/x-icon"),
+            Map.entry("jpg", "image/jpeg"),
+            Map.entry("jpeg", "image/jpeg"),
+            Map.entry("png", "image/png"),
+            Map.entry("gif", "image/gif"));
+
+    /**
+     * Directory files are served from
+     */
+    private final Path root;
+    /**
+     * Smallest file worth keeping a gzipped copy of, in bytes
+     */
+    private final int compressMinBytes;
+    /**
+     * Milliseconds between checks of a cached file for changes on disk
+     */
+    private final long refreshMillis;
+    private final Map<String, Asset> assets = new ConcurrentHashMap<>();
+
+    /**
+     * Create new AssetCache and load every file under root
+     * @param root Directory files are served from
+     * @throws IOException on failure to list or read root
+     */
+    public AssetCache(Path root) throws IOException {
+        this(root, 1024);
+    }
+
+    /**
+     * Create new AssetCache and load every file under root
+     * @param root Directory files are served from
+     * @param compressMinBytes Smallest file worth keeping a gzipped copy of, in bytes
+     * @throws IOException on failure to list or read root
+     */
+    public AssetCache(Path root, int compressMinBytes) throws IOException {
+        this(root, compressMinBytes, REFRESH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Create new AssetCache and load every file under root
+     * @param root Directory files are served from
+     * @param compressMinBytes Smallest file worth keeping a gzipped copy of, in bytes
+     * @param refreshMillis Milliseconds between checks of a cached file for changes on disk
+     * @throws IOException on failure to list or read root
+     */
+    public AssetCache(Path root, int compressMinBytes, long refreshMillis) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.compressMinBytes = compressMinBytes;
+        this.refreshMillis = refreshMillis;
+        try (Stream<Path> files = Files.walk(this.root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file)) {
+                    Asset asset = read(file);
+                    assets.put(asset.path, asset);
+                }
+            }
+        }
+    }
+
+    /**
+     * Look up a file by url path, re-reading it if it changed on disk
+     * @param urlPath Decoded url path, e.g. "/css/main.css"
+     * @return the file, or null if it does not exist or lies outside the web directory
+     */
+    public Asset get(String urlPath) {
+        Path file = resolve(urlPath);
+        if (file == null) {
+            return null;
+        }
+        String key = key(file);
+        Asset asset = assets.get(key);
+        long now = System.currentTimeMillis();
+        if (asset != null && now - asset.checkedAt < refreshMillis) {
+            return asset;
+        }
+        try {
+            if (!Files.isRegularFile(file)) {
+                assets.remove(key);
+                return null;
+            }
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (asset != null && asset.diskModified == attributes.lastModifiedTime().toMillis()
+                    && asset.bytes.length == attributes.size()) {
+                asset.checkedAt = now;
+                return asset;
+            }
+            asset = read(file);
+            assets.put(key, asset);
+            return asset;
+        }
+        catch (IOException e) {
+            System.out.printf("Warning: Unable to read %s (%s)%n", file, e.getMessage());
+            return asset;
+        }
+    }
+
+    /**
+     * Number of cached files
+     * @return cached file count
+     */
+    public int size() {
+        return assets.size();
+    }
+
+    /**
+     * Total size of cached files
+     * @return cached bytes
+     */
+    public long totalBytes() {
+        long total = 0;
+        for (Asset asset : assets.values()) {
+            total += asset.bytes.length;
+        }
+        return total;
+    }
+
+    /**
+     * Map a url path onto a file under root, rejecting paths that escape it ("/../sql/prod-db.db")
+     */
+    private Path resolve(String urlPath) {
+        if (urlPath == null || urlPath.indexOf('\0') >= 0) {
+            return null;
+        }
+        String relative = urlPath.startsWith("/") ? urlPath.substring(1) : urlPath;
+        try {
+            Path file = root.resolve(relative).normalize();
+            return file.startsWith(root) && !file.equals(root) ? file : null;
+        }
+        catch (IllegalArgumentException e) {
+            // InvalidPathException
+            return null;
+        }
+    }
+
+    private String key(Path file) {
+        return "/" + root.relativize(file).toString().replace('\\', '/');
+    }
+
+    private Asset read(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        byte[] bytes = Files.readAllBytes(file);
+        long modified = attributes.lastModifiedTime().toMillis();
+        String contentType = contentType(file);
+        return new Asset(key(file), bytes, contentType, etag(bytes), modified, gzip(bytes, contentType));
+    }
+
+    /**
+     * Gzipped copy of a file, or null if it is too small, already compressed, or barely shrinks
+     */
+    private byte[] gzip(byte[] bytes, String contentType) throws IOException {
+        if (!CompressionFilter.isCompressible(contentType) || bytes.length < compressMinBytes) {
+            return null;
+        }
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream out = new GZIPOutputStream(buf)) {
+            out.write(bytes);
+        }
+        return buf.size() < bytes.length * 9L / 10 ? buf.toByteArray() : null;
+    }
+
+    private static String contentType(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String extension = dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+    }
+
+    /**
+     * Strong validator: a quoted hash of the file's contents
+     */
+    private static String etag(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder tag = new StringBuilder("\"");
+            for (int i = 0; i < 16; i++) {
+                tag.append(String.format("%02x", digest[i]));
+            }
+            return tag.append('"').toString();
+        }
+        catch (NoSuchAlgorithmException e) {
+            // Every JRE provides SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * One cached file
+     */
+    public static class Asset {
+        private final String path;
+        private final byte[] bytes;
+        /**
+         * Gzipped bytes, null if the file is sent uncompressed
+         */
+        private final byte[] gzipBytes;
+        private final String contentType;
+        private final String etag;
+        /**
+         * Modification time on disk, used to notice changes
+         */
+        private final long diskModified;
+        /**
+         * Last-Modified value, truncated to the whole seconds an http date can carry
+         */
+        private final long lastModified;
+        private volatile long checkedAt;
+
+        Asset(String path, byte[] bytes, String contentType, String etag, long diskModified, byte[] gzipBytes) {
+            this.path = path;
+            this.bytes = bytes;
+            this.gzipBytes = gzipBytes;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.diskModified = diskModified;
+            this.lastModified = diskModified / 1000 * 1000;
+            this.checkedAt = System.currentTimeMillis();
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public byte[] getGzipBytes() {
+            return gzipBytes;
+        }
+
+        /**
+         * Strong validators must differ between encodings of the same file
+         * @return ETag of the gzipped bytes
+         */
+        public String getGzipETag() {
+            return etag.substring(0, etag.length() - 1) + "-gz\"";
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+}
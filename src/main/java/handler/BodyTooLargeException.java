@@ -0,0 +1,12 @@
+package handler;
+
+import java.io.IOException;
+
+/**
+ * Generated when a request body is over the maximum size
+ */
+public class BodyTooLargeException extends IOException {
+    public BodyTooLargeException(long maxBytes) {
+        super("Request body is larger than " + maxBytes + " bytes");
+    }
+}
@@ -0,0 +1,340 @@
+package handler;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzips response bodies for clients that accept it. Responses that already carry a Content-Encoding (such as
+ * precompressed web files) and bodies smaller than the threshold are sent as they are. For chunked responses
+ * the first threshold bytes are held back until it is clear whether the body is large enough to compress.
+ */
+public class CompressionFilter extends Filter {
+    /**
+     * Smallest body worth compressing, in bytes
+     */
+    private final int minBytes;
+    private final CompressionStats stats;
+
+    /**
+     * Create new CompressionFilter
+     * @param minBytes Smallest body worth compressing, in bytes
+     */
+    public CompressionFilter(int minBytes) {
+        this.minBytes = minBytes;
+        this.stats = CompressionStats.getInstance();
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+        if (!acceptsGzip(exchange.getRequestHeaders())) {
+            chain.doFilter(exchange);
+            return;
+        }
+        CompressingExchange compressing = new CompressingExchange(exchange);
+        try {
+            chain.doFilter(compressing);
+        }
+        finally {
+            compressing.finish();
+        }
+    }
+
+    @Override
+    public String description() {
+        return "gzip response bodies of at least " + minBytes + " bytes";
+    }
+
+    /**
+     * Whether the request's Accept-Encoding allows a gzip response
+     * @param reqHeaders Request headers
+     * @return true if gzip (or any encoding) is accepted with a non-zero quality
+     */
+    public static boolean acceptsGzip(Headers reqHeaders) {
+        String accept = reqHeaders.getFirst("Accept-Encoding");
+        if (accept == null) {
+            return false;
+        }
+        for (String coding : accept.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!name.equals("gzip") && !name.equals("x-gzip") && !name.equals("*")) {
+                continue;
+            }
+            float quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        quality = Float.parseFloat(param.substring(2));
+                    }
+                    catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (quality > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether a content type is worth compressing; images other than svg and icons are compressed already
+     * @param contentType Content-Type header value
+     * @return true for text, json, javascript, svg and icons
+     */
+    static boolean isCompressible(String contentType) {
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || type.startsWith("application/json")
+                || type.startsWith("application/javascript") || type.startsWith("image/svg+xml")
+                || type.startsWith("image/x-icon");
+    }
+
+    /**
+     * Exchange whose response body is compressed once the handler has sent headers for a large enough body
+     */
+    private class CompressingExchange extends HttpExchange {
+        private final HttpExchange exchange;
+        private CompressingStream body;
+
+        CompressingExchange(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        @Override
+        public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+            if (body != null) {
+                throw new IOException("headers already sent");
+            }
+            boolean noBody = responseLength < 0 || rCode < HttpURLConnection.HTTP_OK
+                    || rCode == HttpURLConnection.HTTP_NO_CONTENT || rCode == HttpURLConnection.HTTP_NOT_MODIFIED
+                    || exchange.getRequestMethod().equalsIgnoreCase("head");
+            Headers respHeaders = exchange.getResponseHeaders();
+            String contentType = respHeaders.getFirst("Content-Type");
+            if (noBody || respHeaders.containsKey("Content-Encoding")
+                    || (contentType != null && !isCompressible(contentType))
+                    || (responseLength > 0 && responseLength < minBytes)) {
+                exchange.sendResponseHeaders(rCode, responseLength);
+                return;
+            }
+            body = new CompressingStream(exchange, rCode);
+            if (responseLength > 0) {
+                // Size known up front and over the threshold
+                body.startCompressing();
+            }
+        }
+
+        @Override
+        public OutputStream getResponseBody() {
+            return body != null ? body : exchange.getResponseBody();
+        }
+
+        @Override
+        public void close() {
+            finish();
+            exchange.close();
+        }
+
+        /**
+         * Send whatever is still held back, used when the handler returns without closing the body
+         */
+        void finish() {
+            if (body != null) {
+                try {
+                    body.close();
+                }
+                catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        @Override
+        public Headers getRequestHeaders() {
+            return exchange.getRequestHeaders();
+        }
+
+        @Override
+        public Headers getResponseHeaders() {
+            return exchange.getResponseHeaders();
+        }
+
+        @Override
+        public URI getRequestURI() {
+            return exchange.getRequestURI();
+        }
+
+        @Override
+        public String getRequestMethod() {
+            return exchange.getRequestMethod();
+        }
+
+        @Override
+        public HttpContext getHttpContext() {
+            return exchange.getHttpContext();
+        }
+
+        @Override
+        public InputStream getRequestBody() {
+            return exchange.getRequestBody();
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return exchange.getRemoteAddress();
+        }
+
+        @Override
+        public int getResponseCode() {
+            return body != null ? body.code : exchange.getResponseCode();
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return exchange.getLocalAddress();
+        }
+
+        @Override
+        public String getProtocol() {
+            return exchange.getProtocol();
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return exchange.getAttribute(name);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            exchange.setAttribute(name, value);
+        }
+
+        @Override
+        public void setStreams(InputStream i, OutputStream o) {
+            exchange.setStreams(i, o);
+        }
+
+        @Override
+        public HttpPrincipal getPrincipal() {
+            return exchange.getPrincipal();
+        }
+    }
+
+    /**
+     * Holds back the start of the body until it reaches the threshold, then sends gzip headers and compresses
+     * the rest. A body that closes under the threshold is sent uncompressed with a fixed length.
+     */
+    private class CompressingStream extends OutputStream {
+        private final HttpExchange exchange;
+        private final int code;
+        private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        private GZIPOutputStream out;
+        private CountingStream counter;
+        private long written;
+        private boolean closed;
+
+        CompressingStream(HttpExchange exchange, int code) {
+            this.exchange = exchange;
+            this.code = code;
+        }
+
+        void startCompressing() throws IOException {
+            Headers respHeaders = exchange.getResponseHeaders();
+            respHeaders.set("Content-Encoding", "gzip");
+            respHeaders.remove("Content-Length");
+            String etag = respHeaders.getFirst("ETag");
+            if (etag != null && !etag.startsWith("W/")) {
+                // Compressed on the fly, so no longer byte-for-byte the entity the strong tag names
+                respHeaders.set("ETag", "W/" + etag);
+            }
+            exchange.sendResponseHeaders(code, 0);
+            counter = new CountingStream(exchange.getResponseBody());
+            out = new GZIPOutputStream(counter, 8192);
+            pending.writeTo(out);
+            pending = null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("stream closed");
+            }
+            written += len;
+            if (out != null) {
+                out.write(b, off, len);
+                return;
+            }
+            pending.write(b, off, len);
+            if (pending.size() >= minBytes) {
+                startCompressing();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // Held back bytes stay held back until the threshold or close decides how they are sent
+            if (out != null) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (out != null) {
+                out.close();
+                stats.record(written, counter.count);
+                return;
+            }
+            byte[] data = pending.toByteArray();
+            exchange.sendResponseHeaders(code, data.length == 0 ? -1 : data.length);
+            OutputStream respBody = exchange.getResponseBody();
+            respBody.write(data);
+            respBody.close();
+        }
+    }
+
+    private static class CountingStream extends FilterOutputStream {
+        long count;
+
+        CountingStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
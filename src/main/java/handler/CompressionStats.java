@@ -0,0 +1,58 @@
+package handler;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how much response compression saves, both for responses compressed on the fly and for
+ * precompressed web files
+ */
+public class CompressionStats {
+    private static final CompressionStats instance = new CompressionStats();
+
+    private final LongAdder responses = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+
+    CompressionStats() {}
+
+    /**
+     * Get the process-wide counters
+     * @return shared counters
+     */
+    public static CompressionStats getInstance() {
+        return instance;
+    }
+
+    /**
+     * Record one compressed response
+     * @param uncompressed Bytes the handler wrote
+     * @param compressed Bytes sent to the client
+     */
+    void record(long uncompressed, long compressed) {
+        responses.increment();
+        bytesIn.add(uncompressed);
+        bytesOut.add(compressed);
+    }
+
+    public long getResponses() {
+        return responses.sum();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    public long getBytesSaved() {
+        return getBytesIn() - getBytesOut();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("compression: responses=%d bytesIn=%d bytesOut=%d saved=%d",
+                getResponses(), getBytesIn(), getBytesOut(), getBytesSaved());
+    }
+}
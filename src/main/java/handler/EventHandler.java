@@ -4,7 +4,10 @@ import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import dao.DataAccessException;
+import dao.FamilyTreeCache;
 import json.*;
+import model.Event;
+import request.PageRequest;
 import request.RequestException;
 import result.EventIDResult;
 import result.EventResult;
@@ -13,6 +16,7 @@ import service.EventService;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Handles event requests
@@ -56,21 +60,33 @@ public class EventHandler extends Handler implements HttpHandler {
                     writeResponseBody(exchange.getResponseBody(), jsonData);
                 }
                 else {
-                    // Get all events
+                    // Get all events, or one page of them when there is a query string
                     EventService eventService = new EventService(DB_PATH);
-                    EventResult eventResult = eventService.event(token);
-                    if (!eventResult.isSuccess()) {
-                        exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, 0);
+                    String query = exchange.getRequestURI().getRawQuery();
+                    PageRequest page = query == null || query.isEmpty() ? null : PageRequest.forEvents(query);
+                    if (page == null && sendCachedEvents(exchange, eventService, token)) {
+                        System.out.println("Event process complete");
+                        return;
+                    }
+                    // Written as rows are read; headers go out with the first event
+                    EventResult eventResult;
+                    if (page == null) {
+                        ResultStreamWriter<Event> out = ResultStreamWriter.forEvents(openStreamedResponse(exchange));
+                        eventResult = eventService.streamEvents(token, out);
                     }
                     else {
-                        exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
+                        ResultStreamWriter<Event> out = ResultStreamWriter.forEvents(openStreamedResponse(exchange),
+                                page.getFields());
+                        eventResult = eventService.streamEventPage(token, page, out);
                     }
-
-                    Encoder jsonEncoder = new Encoder();
-                    String jsonData = jsonEncoder.encodeEvent(eventResult);
                     exchange.getRequestBody().close();
+                    if (!eventResult.isSuccess()) {
+                        exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, 0);
+                        Encoder jsonEncoder = new Encoder();
+                        String jsonData = jsonEncoder.encodeEvent(eventResult);
+                        writeResponseBody(exchange.getResponseBody(), jsonData);
+                    }
                     System.out.println("Event process complete");
-                    writeResponseBody(exchange.getResponseBody(), jsonData);
                 }
                 exchange.getResponseBody().close();
             }
@@ -94,4 +110,32 @@ public class EventHandler extends Handler implements HttpHandler {
             exchange.getResponseBody().close();
         }
     }
+
+    /**
+     * Answer from the response cache, encoding and caching the body on a miss
+     * @return false if the cache is off or the token is invalid, leaving the request to the streamed path
+     */
+    private boolean sendCachedEvents(HttpExchange exchange, EventService eventService, String token)
+            throws IOException, DataAccessException, EncodeException {
+        ResponseCache responses = ResponseCache.getInstance();
+        String username = responses.isEnabled() ? eventService.authenticate(token) : null;
+        if (username == null) {
+            return false;
+        }
+        // Taken before reading, so a write that lands meanwhile leaves this body under a stale version
+        long version = FamilyTreeCache.getInstance().version(DB_PATH, username);
+        ResponseCache.Entry body = responses.get(username, "/event", version);
+        if (body == null) {
+            EventResult eventResult = eventService.event(token);
+            String jsonData = new Encoder().encodeEvent(eventResult);
+            if (!eventResult.isSuccess()) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, 0);
+                writeResponseBody(exchange.getResponseBody(), jsonData);
+                return true;
+            }
+            body = responses.put(username, "/event", version, jsonData.getBytes(StandardCharsets.UTF_8));
+        }
+        sendCachedResponse(exchange, body);
+        return true;
+    }
 }
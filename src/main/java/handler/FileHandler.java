@@ -1,18 +1,52 @@
 package handler;
 
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
-import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 /**
  * Handles requests for webpage
  */
 public class FileHandler implements HttpHandler {
+    private static final String NOT_FOUND_PAGE = "/HTML/404.html";
+
+    /**
+     * Cached copy of the web directory
+     */
+    private final AssetCache assets;
+    /**
+     * Seconds browsers may reuse a non-html file without revalidating it
+     */
+    private final int maxAgeSeconds;
+
+    /**
+     * Create new FileHandler serving the web directory
+     * @throws IOException on failure to read the web directory
+     */
+    public FileHandler() throws IOException {
+        this(new AssetCache(Paths.get("web")), 3600);
+    }
+
+    /**
+     * Create new FileHandler
+     * @param assets Cached copy of the web directory
+     * @param maxAgeSeconds Seconds browsers may reuse a non-html file without revalidating it
+     */
+    public FileHandler(AssetCache assets, int maxAgeSeconds) {
+        this.assets = assets;
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
     /**
      * Handles webpage requests
      * @param exchange HTTP exchange
@@ -20,40 +54,103 @@ public class FileHandler implements HttpHandler {
      */
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        boolean success = false;
         try {
-            if (exchange.getRequestMethod().equalsIgnoreCase("get")) {
-                String urlPath = exchange.getRequestURI().toString();
-                if (urlPath == null || urlPath.equals("/")) urlPath = "/index.html";
-                urlPath = "web" + urlPath;
-                File file = new File(urlPath);
-                OutputStream respBody;
-                if (!file.exists()) {
-                    exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, 0);
-                    File notFoundFile = new File("web/HTML/404.html");
-                    respBody = exchange.getResponseBody();
-                    Files.copy(notFoundFile.toPath(), respBody);
+            String method = exchange.getRequestMethod();
+            boolean head = method.equalsIgnoreCase("head");
+            if (!method.equalsIgnoreCase("get") && !head) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+                return;
+            }
+
+            // getPath() is already percent-decoded, so "%2e%2e" cannot slip past AssetCache
+            String urlPath = exchange.getRequestURI().getPath();
+            if (urlPath == null || urlPath.equals("/")) urlPath = "/index.html";
+            AssetCache.Asset asset = assets.get(urlPath);
+            if (asset == null) {
+                AssetCache.Asset notFound = assets.get(NOT_FOUND_PAGE);
+                if (notFound == null) {
+                    exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
                 }
                 else {
-                    exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
-                    respBody = exchange.getResponseBody();
-                    Files.copy(file.toPath(), respBody);
-                    success = true;
+                    exchange.getResponseHeaders().set("Content-Type", notFound.getContentType());
+                    send(exchange, HttpURLConnection.HTTP_NOT_FOUND, notFound.getBytes(), head);
                 }
-                respBody.close();
-            }
-            else {
-                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, 0);
+                return;
             }
 
-            if (!success) {
-                throw new IOException();
+            boolean gzip = asset.getGzipBytes() != null && CompressionFilter.acceptsGzip(exchange.getRequestHeaders());
+            String etag = gzip ? asset.getGzipETag() : asset.getETag();
+            Headers respHeaders = exchange.getResponseHeaders();
+            respHeaders.set("ETag", etag);
+            respHeaders.set("Last-Modified", httpDate(asset.getLastModified()));
+            respHeaders.set("Cache-Control", asset.getContentType().startsWith("text/html")
+                    ? "no-cache" : "public, max-age=" + maxAgeSeconds);
+            if (notModified(exchange.getRequestHeaders(), asset, etag)) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+                return;
+            }
+            respHeaders.set("Content-Type", asset.getContentType());
+            if (gzip) {
+                respHeaders.set("Content-Encoding", "gzip");
+                if (!head) {
+                    CompressionStats.getInstance().record(asset.getBytes().length, asset.getGzipBytes().length);
+                }
             }
+            send(exchange, HttpURLConnection.HTTP_OK, gzip ? asset.getGzipBytes() : asset.getBytes(), head);
         }
         catch (IOException e) {
-            exchange.sendResponseHeaders(500, 0);
-            exchange.getResponseBody().close();
             e.printStackTrace();
         }
+        finally {
+            exchange.getRequestBody().close();
+            exchange.getResponseBody().close();
+        }
+    }
+
+    private void send(HttpExchange exchange, int code, byte[] body, boolean head) throws IOException {
+        if (head) {
+            exchange.getResponseHeaders().set("Content-Length", Integer.toString(body.length));
+            exchange.sendResponseHeaders(code, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(code, body.length);
+        OutputStream respBody = exchange.getResponseBody();
+        respBody.write(body);
+    }
+
+    /**
+     * Whether the client's cached copy is current. If-None-Match wins over If-Modified-Since when both are sent.
+     */
+    private boolean notModified(Headers reqHeaders, AssetCache.Asset asset, String etag) {
+        String ifNoneMatch = reqHeaders.getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = reqHeaders.getFirst("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            try {
+                long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME)
+                        .toInstant().toEpochMilli();
+                return asset.getLastModified() <= since;
+            }
+            catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static String httpDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC));
     }
 }
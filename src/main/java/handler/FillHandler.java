@@ -6,7 +6,10 @@ import dao.DataAccessException;
 import json.*;
 import request.FillRequest;
 import request.RequestException;
+import result.FillJobResult;
 import result.FillResult;
+import service.FillJob;
+import service.FillJobScheduler;
 import service.FillService;
 
 import java.io.IOException;
@@ -14,15 +17,33 @@ import java.net.HttpURLConnection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Scanner;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Handles fill requests
  */
 public class FillHandler extends Handler implements HttpHandler {
+    private static final String STATUS_PATH = "/fill/status/";
+
+    /**
+     * Runs fills asked for with ?async=true
+     */
+    private final FillJobScheduler jobs;
+
+    /**
+     * Create new FillHandler object
+     */
+    public FillHandler() {
+        this(new FillJobScheduler(DB_PATH, 2, 64, 10 * 60 * 1000L));
+    }
+
     /**
      * Create new FillHandler object
+     * @param jobs Runs fills asked for with ?async=true
      */
-    public FillHandler() {}
+    public FillHandler(FillJobScheduler jobs) {
+        this.jobs = jobs;
+    }
 
     /**
      * Handle fill request
@@ -31,9 +52,18 @@ public class FillHandler extends Handler implements HttpHandler {
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         try {
-            if (exchange.getRequestMethod().equalsIgnoreCase("post")) {
+            String uri = exchange.getRequestURI().getPath();
+            if (exchange.getRequestMethod().equalsIgnoreCase("get") && uri.startsWith(STATUS_PATH)) {
+                sendStatus(exchange, jobs.get(uri.substring(STATUS_PATH.length())));
+            }
+            else if (exchange.getRequestMethod().equalsIgnoreCase("post") && isAsync(exchange)) {
+                System.out.println("Async fill request received");
+                FillRequest request = parseParams(uri);
+                new FillService(DB_PATH).validate(request);
+                submit(exchange, request);
+            }
+            else if (exchange.getRequestMethod().equalsIgnoreCase("post")) {
                 System.out.println("Fill request received");
-                String uri = exchange.getRequestURI().getPath();
                 FillRequest request = parseParams(uri);
                 FillService service = new FillService(DB_PATH);
                 FillResult result = service.fill(request);
@@ -66,6 +96,56 @@ public class FillHandler extends Handler implements HttpHandler {
         }
     }
 
+    /**
+     * Queue the fill and answer 202 with the job to poll, or 503 if the queue is full
+     */
+    private void submit(HttpExchange exchange, FillRequest request) throws IOException, EncodeException {
+        Encoder jsonEncoder = new Encoder();
+        FillJobResult result;
+        try {
+            FillJob job = jobs.submit(request);
+            result = job.toResult();
+            exchange.getResponseHeaders().set("Location", STATUS_PATH + job.getJobID());
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_ACCEPTED, 0);
+        }
+        catch (RejectedExecutionException e) {
+            result = new FillJobResult("Error: Too many fills queued, try again later", false);
+            exchange.getResponseHeaders().set("Retry-After", "5");
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_UNAVAILABLE, 0);
+        }
+        writeResponseBody(exchange.getResponseBody(), jsonEncoder.encodeFillJob(result));
+    }
+
+    private void sendStatus(HttpExchange exchange, FillJob job) throws IOException, EncodeException {
+        FillJobResult result;
+        if (job == null) {
+            result = new FillJobResult("Error: Unknown fill job", false);
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, 0);
+        }
+        else {
+            result = job.toResult();
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
+        }
+        writeResponseBody(exchange.getResponseBody(), new Encoder().encodeFillJob(result));
+    }
+
+    /**
+     * Whether the client asked for the fill to run in the background, with ?async=true or
+     * "Prefer: respond-async"
+     */
+    private boolean isAsync(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.equalsIgnoreCase("async=true") || param.equalsIgnoreCase("async")) {
+                    return true;
+                }
+            }
+        }
+        String prefer = exchange.getRequestHeaders().getFirst("Prefer");
+        return prefer != null && prefer.toLowerCase().contains("respond-async");
+    }
+
     private FillRequest parseParams(String uri) throws RequestException {
         Scanner scnr = new Scanner(uri).useDelimiter("/");
         ArrayList<String> params = new ArrayList<>();
@@ -1,23 +1,17 @@
 package handler;
 
+import com.sun.net.httpserver.HttpExchange;
+import json.ResultStreamWriter;
 import request.RequestException;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.Scanner;
 
 public class Handler {
     static final String DB_PATH = "sql" + File.separator + "prod-db.db";
-    protected String readInputStream(InputStream is) throws IOException {
-        BufferedInputStream bis = new BufferedInputStream(is);
-        ByteArrayOutputStream buf = new ByteArrayOutputStream();
-        for (int result = bis.read(); result != -1; result = bis.read()) {
-            buf.write((byte) result);
-        }
-
-        return buf.toString(String.valueOf(StandardCharsets.UTF_8));
-    }
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
 
     protected void writeResponseBody(OutputStream os, String data) throws IOException {
         OutputStreamWriter sw = new OutputStreamWriter(os);
@@ -25,6 +19,36 @@ public class Handler {
         sw.flush();
     }
 
+    /**
+     * Open a 200 response with a chunked body, for results written as they are read from the database
+     * @param exchange HTTP exchange to respond to
+     * @return opener that sends the headers and returns a buffered response body
+     */
+    protected ResultStreamWriter.Opener openStreamedResponse(HttpExchange exchange) {
+        return () -> {
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
+            return new BufferedOutputStream(exchange.getResponseBody(), STREAM_BUFFER_SIZE);
+        };
+    }
+
+    /**
+     * Send a 200 response from pre-encoded bytes with its Content-Length, gzipped if the client accepts it
+     * and a gzipped copy exists
+     * @param exchange HTTP exchange to respond to
+     * @param body Cached response body
+     */
+    protected void sendCachedResponse(HttpExchange exchange, ResponseCache.Entry body) throws IOException {
+        byte[] bytes = body.getBytes();
+        if (body.getGzipBytes() != null && CompressionFilter.acceptsGzip(exchange.getRequestHeaders())) {
+            // CompressionFilter leaves bodies that already carry a Content-Encoding alone
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            CompressionStats.getInstance().record(bytes.length, body.getGzipBytes().length);
+            bytes = body.getGzipBytes();
+        }
+        exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
     protected String parseID(String uri) throws RequestException {
         Scanner scnr = new Scanner(uri).useDelimiter("/");
         ArrayList<String> params = new ArrayList<>();
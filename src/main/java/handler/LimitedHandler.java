@@ -0,0 +1,131 @@
+package handler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps a handler with a concurrency limit, answering 503 with Retry-After when the route or worker pool is full
+ */
+public class LimitedHandler implements HttpHandler {
+    /**
+     * Handler doing the actual work
+     */
+    private final HttpHandler delegate;
+    /**
+     * Permits for concurrent exchanges on this route, null if unlimited
+     */
+    private final Semaphore permits;
+    /**
+     * Permits for database work shared between routes, null if unlimited
+     */
+    private final Semaphore sharedPermits;
+    /**
+     * Milliseconds to wait for a shared permit before rejecting
+     */
+    private final long sharedWaitMillis;
+    /**
+     * Seconds a rejected client is told to wait before retrying
+     */
+    private final int retryAfterSeconds;
+
+    /**
+     * Create new LimitedHandler
+     * @param delegate Handler doing the actual work
+     * @param maxConcurrent Maximum concurrent exchanges on this route, 0 for unlimited
+     * @param retryAfterSeconds Seconds a rejected client is told to wait before retrying
+     */
+    public LimitedHandler(HttpHandler delegate, int maxConcurrent, int retryAfterSeconds) {
+        this(delegate, maxConcurrent, retryAfterSeconds, null, 0);
+    }
+
+    /**
+     * Create new LimitedHandler that also waits on permits shared with other routes. Used when exchanges run
+     * on virtual threads, where waiting is cheap but the database can only do so much at once.
+     * @param delegate Handler doing the actual work
+     * @param maxConcurrent Maximum concurrent exchanges on this route, 0 for unlimited
+     * @param retryAfterSeconds Seconds a rejected client is told to wait before retrying
+     * @param sharedPermits Permits shared between routes, null for none
+     * @param sharedWaitMillis Milliseconds to wait for a shared permit before rejecting
+     */
+    public LimitedHandler(HttpHandler delegate, int maxConcurrent, int retryAfterSeconds,
+                          Semaphore sharedPermits, long sharedWaitMillis) {
+        this(delegate, maxConcurrent > 0 ? new Semaphore(maxConcurrent) : null, retryAfterSeconds, sharedPermits,
+                sharedWaitMillis);
+    }
+
+    /**
+     * Create new LimitedHandler whose route permits are also taken by work outside HTTP, such as background fills
+     * @param delegate Handler doing the actual work
+     * @param permits Permits for concurrent exchanges on this route, null for unlimited
+     * @param retryAfterSeconds Seconds a rejected client is told to wait before retrying
+     * @param sharedPermits Permits shared between routes, null for none
+     * @param sharedWaitMillis Milliseconds to wait for a shared permit before rejecting
+     */
+    public LimitedHandler(HttpHandler delegate, Semaphore permits, int retryAfterSeconds,
+                          Semaphore sharedPermits, long sharedWaitMillis) {
+        this.delegate = delegate;
+        this.permits = permits;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.sharedPermits = sharedPermits;
+        this.sharedWaitMillis = sharedWaitMillis;
+    }
+
+    /**
+     * Run the wrapped handler if there is room for it, else reject the exchange
+     * @param exchange HTTP exchange
+     * @throws IOException on failure to write the response
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (WorkerPool.isShedding() || (permits != null && !permits.tryAcquire())) {
+            reject(exchange);
+            return;
+        }
+        try {
+            if (!acquireShared()) {
+                reject(exchange);
+                return;
+            }
+            try {
+                delegate.handle(exchange);
+            }
+            finally {
+                if (sharedPermits != null) {
+                    sharedPermits.release();
+                }
+            }
+        }
+        finally {
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    private boolean acquireShared() {
+        if (sharedPermits == null) {
+            return true;
+        }
+        try {
+            return sharedPermits.tryAcquire(sharedWaitMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void reject(HttpExchange exchange) throws IOException {
+        System.out.printf("Server busy, rejecting %s %s%n", exchange.getRequestMethod(),
+                exchange.getRequestURI().getPath());
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+        exchange.sendResponseHeaders(HttpURLConnection.HTTP_UNAVAILABLE, -1);
+        exchange.getRequestBody().close();
+        exchange.close();
+    }
+}
@@ -4,13 +4,13 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import dao.DataAccessException;
 import json.*;
-import request.LoadRequest;
 import result.ClearResult;
 import result.LoadResult;
 import service.ClearService;
 import service.LoadService;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.sql.SQLException;
 
@@ -29,9 +29,12 @@ public class LoadHandler extends Handler implements HttpHandler {
      */
     @Override
     public void handle(HttpExchange exchange) throws IOException {
+        RequestBody body = new RequestBody(exchange);
         try {
             if (exchange.getRequestMethod().equalsIgnoreCase("post")) {
                 System.out.println("Load request received");
+                // Opened first so a Content-Length over the maximum is refused before anything is cleared
+                Reader reader = body.reader();
                 ClearService clearService = new ClearService(DB_PATH);
                 ClearResult clearResult = clearService.clear();
                 if (!clearResult.isSuccess()) {
@@ -39,14 +42,11 @@ public class LoadHandler extends Handler implements HttpHandler {
                 }
 
                 System.out.println("Load request recieved: ");
-                String data = readInputStream(exchange.getRequestBody());
-
-                Decoder jsonDecoder = new Decoder();
-                System.out.println("Decoding request...");
-                LoadRequest loadRequest = jsonDecoder.decodeLoad(data);
+                // Decoded and inserted in batches straight from the request body
                 LoadService loadService = new LoadService(DB_PATH);
-                LoadResult loadResult = loadService.load(loadRequest);
-                System.out.println("Finished decoding");
+                LoadResult loadResult = loadService.load(reader);
+                System.out.printf("Loaded %d users, %d persons, %d events%n", loadResult.getUsersAdded(),
+                        loadResult.getPersonsAdded(), loadResult.getEventsAdded());
 
                 Encoder jsonEncoder = new Encoder();
                 String jsonData = jsonEncoder.encodeLoad(loadResult);
@@ -59,11 +59,20 @@ public class LoadHandler extends Handler implements HttpHandler {
                 throw new IOException("Error: Invalid HTTP Request");
             }
         }
+        catch (BodyTooLargeException e) {
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_ENTITY_TOO_LARGE, 0);
+            throw new IOException("Error: " + e.getMessage());
+        }
         catch (IOException | EncodeException | DataAccessException | SQLException e) {
             exchange.sendResponseHeaders(500, 0);
             throw new IOException("Error: " + e.getMessage());
         }
         catch (DecodeException e) {
+            if (body.isTooLarge()) {
+                // The load rolled back as it does for invalid json
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_ENTITY_TOO_LARGE, 0);
+                throw new IOException("Error: Load request too large");
+            }
             exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, 0);
             throw new IOException("Error: Invalid load request");
         }
@@ -26,14 +26,13 @@ public class LoginHandler extends Handler implements HttpHandler {
      */
     @Override
     public void handle(HttpExchange exchange) throws IOException {
+        RequestBody body = new RequestBody(exchange);
         try {
             if (exchange.getRequestMethod().equalsIgnoreCase("post")) {
                 System.out.println("Login request received");
-                String data = readInputStream(exchange.getRequestBody());
-
                 Decoder jsonDecoder = new Decoder();
                 System.out.println("Decoding request...");
-                LoginRequest loginRequest = jsonDecoder.decodeLogin(data);
+                LoginRequest loginRequest = jsonDecoder.decodeLogin(body.reader());
                 System.out.println("Finished decoding");
 
                 if (!loginRequest.isValidRequest()) {
@@ -65,8 +64,13 @@ public class LoginHandler extends Handler implements HttpHandler {
                 throw new IOException("Error: Invalid HTTP Request");
             }
         }
+        catch (BodyTooLargeException e) {
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_ENTITY_TOO_LARGE, 0);
+            throw new IOException("Error " + e.getMessage());
+        }
         catch (DecodeException e) {
-            exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, 0);
+            exchange.sendResponseHeaders(body.isTooLarge()
+                    ? HttpURLConnection.HTTP_ENTITY_TOO_LARGE : HttpURLConnection.HTTP_BAD_REQUEST, 0);
             throw new IOException("Error " + e.getMessage());
         }
         catch (EncodeException | DataAccessException e) {
@@ -0,0 +1,44 @@
+package handler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Handles metrics requests, answering with every registered metric in the Prometheus text format
+ */
+public class MetricsHandler extends Handler implements HttpHandler {
+    /**
+     * Create new MetricsHandler object
+     */
+    public MetricsHandler() {}
+
+    /**
+     * Handle metrics request
+     * @param exchange HTTP exchange
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            exchange.getRequestBody().close();
+            if (!exchange.getRequestMethod().equalsIgnoreCase("get")) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+                return;
+            }
+            byte[] body = MetricsRegistry.getInstance().scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        }
+        finally {
+            exchange.getResponseBody().close();
+        }
+    }
+}
@@ -4,7 +4,10 @@ import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import dao.DataAccessException;
+import dao.FamilyTreeCache;
 import json.*;
+import model.Person;
+import request.PageRequest;
 import request.RequestException;
 import result.PersonIDResult;
 import result.PersonResult;
@@ -13,6 +16,7 @@ import service.PersonService;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Handles person requests
@@ -57,21 +61,33 @@ public class PersonHandler extends Handler implements HttpHandler {
                     exchange.getResponseBody().close();
                 }
                 else {
-                    // Get all persons
+                    // Get all persons, or one page of them when there is a query string
                     PersonService personService = new PersonService(DB_PATH);
-                    PersonResult personResult = personService.person(token);
-                    if (!personResult.isSuccess()) {
-                        exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, 0);
+                    String query = exchange.getRequestURI().getRawQuery();
+                    PageRequest page = query == null || query.isEmpty() ? null : PageRequest.forPersons(query);
+                    if (page == null && sendCachedPersons(exchange, personService, token)) {
+                        System.out.println("Person process complete");
+                        return;
+                    }
+                    // Written as rows are read; headers go out with the first person
+                    PersonResult personResult;
+                    if (page == null) {
+                        ResultStreamWriter<Person> out = ResultStreamWriter.forPersons(openStreamedResponse(exchange));
+                        personResult = personService.streamPersons(token, out);
                     }
                     else {
-                        exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
+                        ResultStreamWriter<Person> out = ResultStreamWriter.forPersons(openStreamedResponse(exchange),
+                                page.getFields());
+                        personResult = personService.streamPersonPage(token, page, out);
                     }
-
-                    Encoder jsonEncoder = new Encoder();
-                    String jsonData = jsonEncoder.encodePerson(personResult);
                     exchange.getRequestBody().close();
+                    if (!personResult.isSuccess()) {
+                        exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, 0);
+                        Encoder jsonEncoder = new Encoder();
+                        String jsonData = jsonEncoder.encodePerson(personResult);
+                        writeResponseBody(exchange.getResponseBody(), jsonData);
+                    }
                     System.out.println("Person process complete");
-                    writeResponseBody(exchange.getResponseBody(), jsonData);
                 }
             }
             else {
@@ -94,4 +110,32 @@ public class PersonHandler extends Handler implements HttpHandler {
             exchange.getResponseBody().close();
         }
     }
+
+    /**
+     * Answer from the response cache, encoding and caching the body on a miss
+     * @return false if the cache is off or the token is invalid, leaving the request to the streamed path
+     */
+    private boolean sendCachedPersons(HttpExchange exchange, PersonService personService, String token)
+            throws IOException, DataAccessException, EncodeException {
+        ResponseCache responses = ResponseCache.getInstance();
+        String username = responses.isEnabled() ? personService.authenticate(token) : null;
+        if (username == null) {
+            return false;
+        }
+        // Taken before reading, so a write that lands meanwhile leaves this body under a stale version
+        long version = FamilyTreeCache.getInstance().version(DB_PATH, username);
+        ResponseCache.Entry body = responses.get(username, "/person", version);
+        if (body == null) {
+            PersonResult personResult = personService.person(token);
+            String jsonData = new Encoder().encodePerson(personResult);
+            if (!personResult.isSuccess()) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, 0);
+                writeResponseBody(exchange.getResponseBody(), jsonData);
+                return true;
+            }
+            body = responses.put(username, "/person", version, jsonData.getBytes(StandardCharsets.UTF_8));
+        }
+        sendCachedResponse(exchange, body);
+        return true;
+    }
 }
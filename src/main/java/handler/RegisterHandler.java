@@ -31,14 +31,13 @@ public class RegisterHandler extends Handler implements HttpHandler {
      */
     @Override
     public void handle(HttpExchange exchange) throws IOException {
+        RequestBody body = new RequestBody(exchange);
         try {
             if (exchange.getRequestMethod().equalsIgnoreCase("post")) {
                 System.out.println("Register request recieved: ");
-                String data = readInputStream(exchange.getRequestBody());
-
                 Decoder jsonDecoder = new Decoder();
                 System.out.println("Decoding request...");
-                RegisterRequest request = jsonDecoder.decodeRegister(data);
+                RegisterRequest request = jsonDecoder.decodeRegister(body.reader());
                 System.out.println("Finished decoding");
 
                 if (!request.isValidRequest()) {
@@ -96,8 +95,15 @@ public class RegisterHandler extends Handler implements HttpHandler {
             exchange.getRequestBody().close();
             exchange.getResponseBody().close();
         }
+        catch (BodyTooLargeException e) {
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_ENTITY_TOO_LARGE, 0);
+            e.printStackTrace();
+            exchange.getRequestBody().close();
+            exchange.getResponseBody().close();
+        }
         catch (DecodeException | RequestException e) {
-            exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, 0);
+            exchange.sendResponseHeaders(body.isTooLarge()
+                    ? HttpURLConnection.HTTP_ENTITY_TOO_LARGE : HttpURLConnection.HTTP_BAD_REQUEST, 0);
             e.printStackTrace();
             exchange.getRequestBody().close();
             exchange.getResponseBody().close();
@@ -0,0 +1,125 @@
+package handler;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A request body capped at a maximum size, handed to a decoder as a Reader so it is never held as a String.
+ * A Content-Length over the maximum is refused before anything is read, and reading past the maximum fails
+ * with {@link BodyTooLargeException}; {@link #isTooLarge()} tells callers whose decoder wrapped that failure.
+ */
+public class RequestBody {
+    /**
+     * Largest body accepted, in bytes
+     */
+    private static volatile long maxBytes = 64L * 1024 * 1024;
+
+    private final HttpExchange exchange;
+    /**
+     * Content-Length of the request, -1 if not given
+     */
+    private final long declaredLength;
+    private boolean tooLarge;
+
+    /**
+     * Create new RequestBody; nothing is read until asked for
+     * @param exchange HTTP exchange whose body to read
+     */
+    public RequestBody(HttpExchange exchange) {
+        this.exchange = exchange;
+        long length = -1;
+        String header = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (header != null) {
+            try {
+                length = Long.parseLong(header.trim());
+            }
+            catch (NumberFormatException e) {
+                length = -1;
+            }
+        }
+        this.declaredLength = length;
+        this.tooLarge = length > maxBytes;
+    }
+
+    /**
+     * Set the largest body accepted
+     * @param newMaxBytes Maximum bytes
+     */
+    public static void setMaxBytes(long newMaxBytes) {
+        maxBytes = newMaxBytes;
+    }
+
+    /**
+     * Whether the body is over the maximum, known up front from Content-Length or found while reading
+     * @return true if the request should be answered with 413
+     */
+    public boolean isTooLarge() {
+        return tooLarge;
+    }
+
+    /**
+     * Open the body as a UTF-8 Reader for decoders that read as they go
+     * @return reader over the body that fails with {@link BodyTooLargeException} past the maximum
+     * @throws BodyTooLargeException if Content-Length is over the maximum
+     */
+    public Reader reader() throws IOException {
+        checkDeclaredLength();
+        return new InputStreamReader(new LimitedStream(exchange.getRequestBody(), maxBytes),
+                StandardCharsets.UTF_8);
+    }
+
+    private void checkDeclaredLength() throws BodyTooLargeException {
+        if (declaredLength > maxBytes) {
+            throw overflow();
+        }
+    }
+
+    private BodyTooLargeException overflow() {
+        tooLarge = true;
+        return new BodyTooLargeException(maxBytes);
+    }
+
+    /**
+     * Stream that fails once more than the limit has been read
+     */
+    private class LimitedStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+
+        LimitedStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                counted(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                counted(n);
+            }
+            return n;
+        }
+
+        private void counted(int n) throws BodyTooLargeException {
+            count += n;
+            if (count > limit) {
+                throw overflow();
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package handler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoded /person and /event response bodies, kept as UTF-8 bytes and, when large enough, gzipped bytes so
+ * repeat requests are written straight out with a known Content-Length. Each body is stored under the
+ * version of the user's tree it was read at (see {@link dao.FamilyTreeCache#version}); a write to the tree
+ * bumps that version, so an older body is never served and is replaced by the next one cached. Bounded by
+ * total bytes, least recently used first.
+ */
+public class ResponseCache {
+    private static final ResponseCache instance = new ResponseCache(32L * 1024 * 1024, 1024);
+
+    /**
+     * Maximum bytes of cached bodies, 0 disables caching
+     */
+    private volatile long maxBytes;
+    /**
+     * Smallest body worth keeping a gzipped copy of, negative to never gzip
+     */
+    private volatile int compressMinBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    ResponseCache(long maxBytes, int compressMinBytes) {
+        this.maxBytes = maxBytes;
+        this.compressMinBytes = compressMinBytes;
+    }
+
+    /**
+     * Get the process-wide cache
+     * @return shared cache
+     */
+    public static ResponseCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Change the limits; bodies over the new bound are evicted on the next insert
+     * @param newMaxBytes Maximum bytes of cached bodies, 0 disables caching
+     * @param newCompressMinBytes Smallest body worth keeping a gzipped copy of, negative to never gzip
+     */
+    public void configure(long newMaxBytes, int newCompressMinBytes) {
+        maxBytes = newMaxBytes;
+        compressMinBytes = newCompressMinBytes;
+        if (newMaxBytes == 0) {
+            synchronized (entries) {
+                entries.clear();
+                totalBytes = 0;
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Look up a body
+     * @param username Username of tree owner
+     * @param route Route the body answers, such as "/person"
+     * @param version Current version of the user's tree
+     * @return cached body, or null if none was cached at this version
+     */
+    public Entry get(String username, String route, long version) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key(username, route));
+        }
+        if (entry == null || entry.version != version) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Cache a body, compressing a copy if it is large enough. A body already cached at the same or a newer
+     * version is kept.
+     * @param username Username of tree owner
+     * @param route Route the body answers, such as "/person"
+     * @param version Version of the user's tree taken before the body's data was read
+     * @param bytes UTF-8 body
+     * @return the entry to send, whether or not it was kept
+     */
+    public Entry put(String username, String route, long version, byte[] bytes) {
+        int minBytes = compressMinBytes;
+        Entry entry = new Entry(version, bytes, minBytes >= 0 && bytes.length >= minBytes ? gzip(bytes) : null);
+        long limit = maxBytes;
+        if (limit <= 0 || entry.weight() > limit) {
+            return entry;
+        }
+        synchronized (entries) {
+            String key = key(username, route);
+            Entry current = entries.get(key);
+            if (current != null && current.version >= version) {
+                // A slower reader finishing late must not replace a body read at a newer version
+                return entry;
+            }
+            entries.put(key, entry);
+            totalBytes += entry.weight() - (current == null ? 0 : current.weight());
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (totalBytes > limit && eldest.hasNext()) {
+                totalBytes -= eldest.next().weight();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+        return entry;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("response cache: size=%d bytes=%d hits=%d misses=%d evictions=%d",
+                size(), getBytes(), getHits(), getMisses(), getEvictions());
+    }
+
+    private static String key(String username, String route) {
+        return route + '\0' + username;
+    }
+
+    /**
+     * Gzipped copy of a body, or null if it barely shrinks
+     */
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(buf)) {
+            out.write(bytes);
+        }
+        catch (IOException e) {
+            // Writing to memory does not fail
+            throw new UncheckedIOException(e);
+        }
+        return buf.size() < bytes.length * 9L / 10 ? buf.toByteArray() : null;
+    }
+
+    /**
+     * One encoded body
+     */
+    public static class Entry {
+        private final long version;
+        private final byte[] bytes;
+        private final byte[] gzipBytes;
+
+        Entry(long version, byte[] bytes, byte[] gzipBytes) {
+            this.version = version;
+            this.bytes = bytes;
+            this.gzipBytes = gzipBytes;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return gzipped body, or null if it was too small or did not compress
+         */
+        public byte[] getGzipBytes() {
+            return gzipBytes;
+        }
+
+        long weight() {
+            return bytes.length + (gzipBytes == null ? 0 : gzipBytes.length);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package handler;
+
+import dao.AuthTokenCache;
+import dao.ConnectionPool;
+import dao.FamilyTreeCache;
+import dao.PoolStats;
+import dao.StatementCache;
+import metrics.MetricsRegistry;
+import metrics.PrometheusWriter;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes the statistics the connection pools and caches already keep, read fresh on every scrape
+ */
+public class StatsCollector implements MetricsRegistry.Collector {
+    /**
+     * Create new StatsCollector
+     */
+    public StatsCollector() {}
+
+    @Override
+    public void collect(PrometheusWriter out) {
+        collectPools(out, ConnectionPool.allStats());
+
+        AuthTokenCache tokens = AuthTokenCache.getInstance();
+        out.gauge("fms_token_cache_entries", "Auth tokens cached", tokens.size());
+        out.counter("fms_token_cache_hits_total", "Auth token lookups answered from the cache", tokens.getHits());
+        out.counter("fms_token_cache_misses_total", "Auth token lookups that went to the database",
+                tokens.getMisses());
+        out.counter("fms_token_cache_evictions_total", "Auth tokens evicted from the cache", tokens.getEvictions());
+
+        FamilyTreeCache trees = FamilyTreeCache.getInstance();
+        out.gauge("fms_tree_cache_entries", "Users with persons or events cached", trees.size());
+        out.gauge("fms_tree_cache_bytes", "Estimated size of cached persons and events", trees.getBytes());
+        out.counter("fms_tree_cache_hits_total", "Person and event reads answered from the cache", trees.getHits());
+        out.counter("fms_tree_cache_misses_total", "Person and event reads that went to the database",
+                trees.getMisses());
+        out.counter("fms_tree_cache_evictions_total", "Trees evicted from the cache", trees.getEvictions());
+        out.counter("fms_tree_cache_invalidations_total", "Trees dropped from the cache after a write",
+                trees.getInvalidations());
+
+        ResponseCache responses = ResponseCache.getInstance();
+        out.gauge("fms_response_cache_entries", "Encoded response bodies cached", responses.size());
+        out.gauge("fms_response_cache_bytes", "Size of cached response bodies", responses.getBytes());
+        out.counter("fms_response_cache_hits_total", "Responses sent from the cache", responses.getHits());
+        out.counter("fms_response_cache_misses_total", "Responses encoded because they were not cached",
+                responses.getMisses());
+        out.counter("fms_response_cache_evictions_total", "Response bodies evicted from the cache",
+                responses.getEvictions());
+
+        out.counter("fms_statement_cache_hits_total", "Prepared statements reused", StatementCache.getHits());
+        out.counter("fms_statement_cache_misses_total", "Prepared statements prepared", StatementCache.getMisses());
+        out.counter("fms_statement_cache_evictions_total", "Prepared statements evicted from a connection's cache",
+                StatementCache.getEvictions());
+
+        CompressionStats compression = CompressionStats.getInstance();
+        out.counter("fms_compression_responses_total", "Responses sent gzipped", compression.getResponses());
+        out.counter("fms_compression_bytes_in_total", "Bytes of gzipped responses before compression",
+                compression.getBytesIn());
+        out.counter("fms_compression_bytes_out_total", "Bytes of gzipped responses after compression",
+                compression.getBytesOut());
+    }
+
+    private void collectPools(PrometheusWriter out, List<PoolStats> pools) {
+        out.header("fms_db_pool_size", "gauge", "Connections a pool may open");
+        for (PoolStats pool : pools) {
+            out.sample("fms_db_pool_size", poolLabels(pool), pool.getSize());
+        }
+        out.header("fms_db_pool_connections", "gauge", "Connections open in a pool by state");
+        for (PoolStats pool : pools) {
+            out.sample("fms_db_pool_connections", poolLabels(pool) + ",state=\"active\"", pool.getActive());
+            out.sample("fms_db_pool_connections", poolLabels(pool) + ",state=\"idle\"", pool.getIdle());
+        }
+        out.header("fms_db_pool_checkouts_total", "counter", "Connections checked out of a pool");
+        for (PoolStats pool : pools) {
+            out.sample("fms_db_pool_checkouts_total", poolLabels(pool), pool.getCheckouts());
+        }
+        out.header("fms_db_pool_timeouts_total", "counter", "Checkouts that timed out waiting for a connection");
+        for (PoolStats pool : pools) {
+            out.sample("fms_db_pool_timeouts_total", poolLabels(pool), pool.getTimeouts());
+        }
+        out.header("fms_db_pool_leaks_total", "counter", "Connections held past the leak threshold");
+        for (PoolStats pool : pools) {
+            out.sample("fms_db_pool_leaks_total", poolLabels(pool), pool.getLeaks());
+        }
+    }
+
+    private static String poolLabels(PoolStats pool) {
+        return MetricsRegistry.labels("db", pool.getDbPath(), "mode", pool.getMode().name().toLowerCase(Locale.ROOT));
+    }
+}
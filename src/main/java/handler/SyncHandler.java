@@ -0,0 +1,98 @@
+package handler;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import dao.DataAccessException;
+import json.EncodeException;
+import json.Encoder;
+import json.SyncStreamWriter;
+import result.SyncResult;
+import service.SyncService;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+/**
+ * Handles sync requests
+ */
+public class SyncHandler extends Handler implements HttpHandler {
+    /**
+     * Create new SyncHandler object
+     */
+    public SyncHandler() {}
+
+    /**
+     * Handle sync request
+     * @param exchange HTTP exchange containing AuthToken of current logged-in user and the revision to sync from
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (exchange.getRequestMethod().equalsIgnoreCase("get")) {
+                System.out.println("Sync request received");
+                Headers reqHeaders = exchange.getRequestHeaders();
+                if (!reqHeaders.containsKey("Authorization")) {
+                    throw new IOException("Error: Missing auth token");
+                }
+                String token = reqHeaders.getFirst("Authorization");
+                exchange.getRequestBody().close();
+
+                SyncResult syncResult;
+                Long since = parseSince(exchange.getRequestURI().getRawQuery());
+                if (since == null) {
+                    syncResult = new SyncResult("Error: since must be a number", false);
+                }
+                else {
+                    // Written as rows are read; headers go out when the sync starts
+                    SyncService syncService = new SyncService(DB_PATH);
+                    syncResult = syncService.sync(token, since, new SyncStreamWriter(openStreamedResponse(exchange)));
+                }
+                if (!syncResult.isSuccess()) {
+                    exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, 0);
+                    Encoder jsonEncoder = new Encoder();
+                    String jsonData = jsonEncoder.encodeSync(syncResult);
+                    writeResponseBody(exchange.getResponseBody(), jsonData);
+                }
+                System.out.println("Sync process complete");
+                exchange.getResponseBody().close();
+            }
+            else {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, 0);
+                exchange.getRequestBody().close();
+                exchange.getResponseBody().close();
+                throw new IOException("Error: Invalid HTTP Request");
+            }
+        }
+        catch (EncodeException | DataAccessException e) {
+            exchange.sendResponseHeaders(500, 0);
+            throw new IOException(e.getMessage());
+        }
+        finally {
+            exchange.getRequestBody().close();
+            exchange.getResponseBody().close();
+        }
+    }
+
+    /**
+     * Read the revision to sync from out of the query string
+     * @param query Raw query string, may be null
+     * @return revision, 0 if not given, or null if not a number
+     */
+    private Long parseSince(String query) {
+        if (query == null) {
+            return 0L;
+        }
+        for (String param : query.split("&")) {
+            if (param.startsWith("since=")) {
+                try {
+                    return Long.parseLong(param.substring("since=".length()));
+                }
+                catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return 0L;
+    }
+}
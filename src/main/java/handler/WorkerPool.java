@@ -0,0 +1,108 @@
+package handler;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of worker threads that HTTP exchanges are dispatched on
+ */
+public class WorkerPool {
+    /**
+     * Set on the dispatcher thread while it runs an exchange that the pool had no room for
+     */
+    private static final ThreadLocal<Boolean> shedding = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * Create new WorkerPool; use the static factory
+     */
+    private WorkerPool() {}
+
+    /**
+     * Create a fixed size executor with a bounded queue. When the queue is full the exchange is run on the
+     * calling dispatcher thread in "shedding" mode so that LimitedHandler answers it with 503 right away
+     * instead of doing the work.
+     * @param threads Number of worker threads
+     * @param queueCapacity Number of exchanges allowed to wait for a worker
+     * @return executor to hand to HttpServer.setExecutor
+     */
+    public static ExecutorService create(int threads, int queueCapacity) {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Worker pool size and queue capacity must be positive");
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new NamedThreadFactory("fms-worker"), new ShedPolicy());
+        executor.prestartAllCoreThreads();
+        return executor;
+    }
+
+    /**
+     * Create an executor that runs every exchange on its own virtual thread. Looked up reflectively so the
+     * server still builds for Java 17; the caller should fall back to a platform pool if this fails.
+     * @return executor to hand to HttpServer.setExecutor
+     * @throws UnsupportedOperationException if the running JVM has no virtual threads
+     */
+    public static ExecutorService createVirtual() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        }
+        catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new UnsupportedOperationException("Virtual threads are not available on Java " +
+                    Runtime.version().feature());
+        }
+    }
+
+    /**
+     * Whether the current thread is running an exchange that was rejected by the pool
+     * @return true if the exchange should be answered with 503
+     */
+    static boolean isShedding() {
+        return shedding.get();
+    }
+
+    /**
+     * Runs rejected exchanges on the dispatcher thread with the shedding flag set
+     */
+    private static class ShedPolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                return;
+            }
+            shedding.set(true);
+            try {
+                task.run();
+            }
+            finally {
+                shedding.set(false);
+            }
+        }
+    }
+
+    /**
+     * Names worker threads so they are identifiable in thread dumps
+     */
+    static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(false);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import model.Event;
+import model.Location;
+import model.Person;
+import model.User;
+import result.EventResult;
+import result.PersonResult;
+
+/**
+ * Holds the Gson instance shared by every encoder and decoder. Gson is thread-safe and caches the type
+ * adapters it builds, so creating one per request throws that work away each time.
+ */
+public final class Codec {
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Person.class, ModelAdapters.PERSON)
+            .registerTypeAdapter(Event.class, ModelAdapters.EVENT)
+            .registerTypeAdapter(User.class, ModelAdapters.USER)
+            .registerTypeAdapter(Location.class, ModelAdapters.LOCATION)
+            .registerTypeAdapter(PersonResult.class, ModelAdapters.PERSON_RESULT)
+            .registerTypeAdapter(EventResult.class, ModelAdapters.EVENT_RESULT)
+            .create();
+
+    private Codec() {}
+
+    /**
+     * Get the shared Gson instance
+     * @return Gson with the hand-written model and list result adapters registered
+     */
+    public static Gson gson() {
+        return GSON;
+    }
+}
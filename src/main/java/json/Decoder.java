@@ -4,6 +4,7 @@ import com.google.gson.*;
 import model.Location;
 import request.*;
 
+import java.io.Reader;
 import java.text.Normalizer;
 
 /**
@@ -22,7 +23,7 @@ public class Decoder {
      * @throws DecodeException on invalid json
      */
     public LoadRequest decodeLoad(String jsonString) throws DecodeException {
-        Gson gson = new Gson();
+        Gson gson = Codec.gson();
         try {
             return gson.fromJson(jsonString, LoadRequest.class);
         }
@@ -38,7 +39,7 @@ public class Decoder {
      * @throws DecodeException on invalid json
      */
     public LoginRequest decodeLogin(String jsonString) throws DecodeException {
-        Gson gson = new Gson();
+        Gson gson = Codec.gson();
         try {
             return gson.fromJson(jsonString, LoginRequest.class);
         }
@@ -47,6 +48,22 @@ public class Decoder {
         }
     }
 
+    /**
+     * Decode json read from a request body into LoginRequest object
+     * @param json Reader over the json
+     * @return LoginRequest object generated from json
+     * @throws DecodeException on invalid json, or if reading fails
+     */
+    public LoginRequest decodeLogin(Reader json) throws DecodeException {
+        Gson gson = Codec.gson();
+        try {
+            return gson.fromJson(json, LoginRequest.class);
+        }
+        catch (JsonParseException e) {
+            throw new DecodeException(e.getMessage());
+        }
+    }
+
     /**
      * Decode given json string into RegisterRequest object
      * @param jsonString json file in String
@@ -54,7 +71,7 @@ public class Decoder {
      * @throws DecodeException on invalid json
      */
     public RegisterRequest decodeRegister(String jsonString) throws DecodeException {
-        Gson gson = new Gson();
+        Gson gson = Codec.gson();
         try {
             return gson.fromJson(jsonString, RegisterRequest.class);
         }
@@ -63,8 +80,24 @@ public class Decoder {
         }
     }
 
+    /**
+     * Decode json read from a request body into RegisterRequest object
+     * @param json Reader over the json
+     * @return RegisterRequest object generated from json
+     * @throws DecodeException on invalid json, or if reading fails
+     */
+    public RegisterRequest decodeRegister(Reader json) throws DecodeException {
+        Gson gson = Codec.gson();
+        try {
+            return gson.fromJson(json, RegisterRequest.class);
+        }
+        catch (JsonParseException e) {
+            throw new DecodeException(e.getMessage());
+        }
+    }
+
     public String[] parseNames(String jsonString) throws DecodeException {
-        Gson gson = new Gson();
+        Gson gson = Codec.gson();
         try {
             NameData names = gson.fromJson(jsonString, NameData.class);
             return names.data;
@@ -76,7 +109,7 @@ public class Decoder {
 
     public Location[] parseLocations(String jsonString) throws DecodeException {
         String decomposed = Normalizer.normalize(jsonString, Normalizer.Form.NFC);
-        Gson gson = new Gson();
+        Gson gson = Codec.gson();
         try {
             LocationData locations = gson.fromJson(decomposed, LocationData.class);
             return locations.data;
@@ -19,7 +19,7 @@ public class Encoder {
      * @throws EncodeException on invalid object or gson exception
      */
     public String encodeClear(ClearResult result) throws EncodeException {
-        Gson gson = new Gson();
+        Gson gson = Codec.gson();
         try {
             return gson.toJson(result);
         }
@@ -35,7 +35,7 @@ public class Encoder {
      * @throws EncodeException on invalid object or gson exception
      */
     public String encodeEventID(EventIDResult result) throws EncodeException {
-        Gson gson = new Gson();
+        Gson gson = Codec.gson();
         try {
             return gson.toJson(result);
         }
@@ -51,7 +51,7 @@ public class Encoder {
      * @throws EncodeException on invalid object or gson exception
      */
     public String encodeEvent(EventResult result) throws EncodeException {
-        Gson gson = new Gson();
+        Gson gson = Codec.gson();
         try {
             return gson.toJson(result);
         }
@@ -67,7 +67,39 @@ public class Encoder {
      * @throws EncodeException on invalid object or gson exception
      */
     public String encodeFill(FillResult result) throws EncodeException {
-        Gson gson = new Gson();
+        Gson gson = Codec.gson();
+        try {
+            return gson.toJson(result);
+        }
+        catch (JsonIOException e) {
+            throw new EncodeException();
+        }
+    }
+
+    /**
+     * Encode SyncResult object into json string
+     * @param result SyncResult object to encode
+     * @return encoded json string
+     * @throws EncodeException on invalid object or gson exception
+     */
+    public String encodeSync(SyncResult result) throws EncodeException {
+        Gson gson = Codec.gson();
+        try {
+            return gson.toJson(result);
+        }
+        catch (JsonIOException e) {
+            throw new EncodeException();
+        }
+    }
+
+    /**
+     * Encode FillJobResult object into json string
+     * @param result FillJobResult object to encode
+     * @return encoded json string
+     * @throws EncodeException on invalid object or gson exception
+     */
+    public String encodeFillJob(FillJobResult result) throws EncodeException {
+        Gson gson = Codec.gson();
         try {
             return gson.toJson(result);
         }
@@ -83,7 +115,7 @@ public class Encoder {
      * @throws EncodeException on invalid object or gson exception
      */
     public String encodeLoad(LoadResult result) throws EncodeException {
-        Gson gson = new Gson();
+        Gson gson = Codec.gson();
         try {
             return gson.toJson(result);
         }
@@ -99,7 +131,7 @@ public class Encoder {
      * @throws EncodeException on invalid object or gson exception
      */
     public String encodeLogin(LoginResult result) throws EncodeException {
-        Gson gson = new Gson();
+        Gson gson = Codec.gson();
         try {
             return gson.toJson(result);
         }
@@ -115,7 +147,7 @@ public class Encoder {
      * @throws EncodeException on invalid object or gson exception
      */
     public String encodePersonID(PersonIDResult result) throws EncodeException {
-        Gson gson = new Gson();
+        Gson gson = Codec.gson();
         try {
             return gson.toJson(result);
         }
@@ -131,7 +163,7 @@ public class Encoder {
      * @throws EncodeException on invalid object or gson exception
      */
     public String encodePerson(PersonResult result) throws EncodeException {
-        Gson gson = new Gson();
+        Gson gson = Codec.gson();
         try {
             return gson.toJson(result);
         }
@@ -147,7 +179,7 @@ public class Encoder {
      * @throws EncodeException on invalid object or gson exception
      */
     public String encodeRegister(RegisterResult result) throws EncodeException {
-        Gson gson = new Gson();
+        Gson gson = Codec.gson();
         try {
             return gson.toJson(result);
         }
@@ -0,0 +1,103 @@
+package json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes a load request body section by section, a batch of elements at a time, without holding the
+ * whole request in memory
+ */
+public class LoadStreamDecoder {
+    private final Gson gson = Codec.gson();
+    private final JsonReader reader;
+    /**
+     * Whether the enclosing object has been entered
+     */
+    private boolean started;
+    /**
+     * Whether the current section's array has been fully read
+     */
+    private boolean inSection;
+
+    /**
+     * Create new LoadStreamDecoder
+     * @param reader Reader over the request body
+     */
+    public LoadStreamDecoder(Reader reader) {
+        this.reader = new JsonReader(reader);
+    }
+
+    /**
+     * Advance to the next array in the request, skipping any unknown or non-array members
+     * @return name of the next section ("users", "persons", "events", ...), or null at the end of the request
+     * @throws DecodeException on invalid json
+     */
+    public String nextSection() throws DecodeException {
+        try {
+            if (!started) {
+                reader.beginObject();
+                started = true;
+            }
+            if (inSection) {
+                // Caller stopped reading early
+                while (reader.hasNext()) {
+                    reader.skipValue();
+                }
+                reader.endArray();
+                inSection = false;
+            }
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    inSection = true;
+                    return name;
+                }
+                reader.skipValue();
+            }
+            reader.endObject();
+            return null;
+        }
+        catch (IOException | IllegalStateException e) {
+            throw new DecodeException(e.getMessage());
+        }
+    }
+
+    /**
+     * Read up to max elements of the current section
+     * @param type Class of the section's elements
+     * @param max Maximum number of elements to read
+     * @param <T> Element type
+     * @return next elements (json nulls are skipped), empty once the section is exhausted
+     * @throws DecodeException on invalid json
+     */
+    public <T> List<T> readBatch(Class<T> type, int max) throws DecodeException {
+        List<T> batch = new ArrayList<>(Math.min(max, 1024));
+        if (!inSection) {
+            return batch;
+        }
+        try {
+            while (batch.size() < max && reader.hasNext()) {
+                T element = gson.fromJson(reader, type);
+                if (element != null) {
+                    batch.add(element);
+                }
+            }
+            if (!reader.hasNext()) {
+                reader.endArray();
+                inSection = false;
+            }
+            return batch;
+        }
+        catch (IOException | IllegalStateException | JsonParseException e) {
+            throw new DecodeException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package json;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import model.Event;
+import model.Location;
+import model.Person;
+import model.User;
+import result.EventResult;
+import result.PersonResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hand-written type adapters for the models and list results, so encoding and decoding them does not go
+ * through reflection. Each writes the same json as Gson's reflective adapter: fields in declaration order,
+ * null fields left out, floats printed like Float.toString.
+ */
+final class ModelAdapters {
+    static final TypeAdapter<Person> PERSON = new PersonAdapter().nullSafe();
+    static final TypeAdapter<Event> EVENT = new EventAdapter().nullSafe();
+    static final TypeAdapter<User> USER = new UserAdapter().nullSafe();
+    static final TypeAdapter<Location> LOCATION = new LocationAdapter().nullSafe();
+    static final TypeAdapter<PersonResult> PERSON_RESULT = new PersonResultAdapter().nullSafe();
+    static final TypeAdapter<EventResult> EVENT_RESULT = new EventResultAdapter().nullSafe();
+
+    private ModelAdapters() {}
+
+    /**
+     * Write a person with only some of its fields, in the same order as the full object
+     * @param fields Names of the fields to write, null for all
+     */
+    static void writePerson(JsonWriter out, Person person, Set<String> fields) throws IOException {
+        out.beginObject();
+        if (has(fields, "personID")) {
+            out.name("personID").value(person.getPersonID());
+        }
+        if (has(fields, "associatedUsername")) {
+            out.name("associatedUsername").value(person.getAssociatedUsername());
+        }
+        if (has(fields, "firstName")) {
+            out.name("firstName").value(person.getFirstName());
+        }
+        if (has(fields, "lastName")) {
+            out.name("lastName").value(person.getLastName());
+        }
+        if (has(fields, "gender")) {
+            out.name("gender").value(person.getGender());
+        }
+        if (has(fields, "fatherID")) {
+            out.name("fatherID").value(person.getFatherID());
+        }
+        if (has(fields, "motherID")) {
+            out.name("motherID").value(person.getMotherID());
+        }
+        if (has(fields, "spouseID")) {
+            out.name("spouseID").value(person.getSpouseID());
+        }
+        out.endObject();
+    }
+
+    /**
+     * Write an event with only some of its fields, in the same order as the full object
+     * @param fields Names of the fields to write, null for all
+     */
+    static void writeEvent(JsonWriter out, Event event, Set<String> fields) throws IOException {
+        out.beginObject();
+        // Floats are boxed so they print like Gson does (38.89037, not 38.89036941528320)
+        if (has(fields, "eventID")) {
+            out.name("eventID").value(event.getEventID());
+        }
+        if (has(fields, "associatedUsername")) {
+            out.name("associatedUsername").value(event.getUsername());
+        }
+        if (has(fields, "personID")) {
+            out.name("personID").value(event.getPersonID());
+        }
+        if (has(fields, "latitude")) {
+            out.name("latitude").value((Number) event.getLatitude());
+        }
+        if (has(fields, "longitude")) {
+            out.name("longitude").value((Number) event.getLongitude());
+        }
+        if (has(fields, "country")) {
+            out.name("country").value(event.getCountry());
+        }
+        if (has(fields, "city")) {
+            out.name("city").value(event.getCity());
+        }
+        if (has(fields, "eventType")) {
+            out.name("eventType").value(event.getEventType());
+        }
+        if (has(fields, "year")) {
+            out.name("year").value(event.getYear());
+        }
+        out.endObject();
+    }
+
+    private static boolean has(Set<String> fields, String name) {
+        return fields == null || fields.contains(name);
+    }
+
+    private static class PersonAdapter extends TypeAdapter<Person> {
+        @Override
+        public void write(JsonWriter out, Person person) throws IOException {
+            writePerson(out, person, null);
+        }
+
+        @Override
+        public Person read(JsonReader in) throws IOException {
+            String personID = null;
+            String associatedUsername = null;
+            String firstName = null;
+            String lastName = null;
+            String gender = null;
+            String fatherID = null;
+            String motherID = null;
+            String spouseID = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "personID" -> personID = readString(in);
+                    case "associatedUsername" -> associatedUsername = readString(in);
+                    case "firstName" -> firstName = readString(in);
+                    case "lastName" -> lastName = readString(in);
+                    case "gender" -> gender = readString(in);
+                    case "fatherID" -> fatherID = readString(in);
+                    case "motherID" -> motherID = readString(in);
+                    case "spouseID" -> spouseID = readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Person(personID, associatedUsername, firstName, lastName, gender, fatherID, motherID,
+                    spouseID);
+        }
+    }
+
+    private static class EventAdapter extends TypeAdapter<Event> {
+        @Override
+        public void write(JsonWriter out, Event event) throws IOException {
+            writeEvent(out, event, null);
+        }
+
+        @Override
+        public Event read(JsonReader in) throws IOException {
+            String eventID = null;
+            String associatedUsername = null;
+            String personID = null;
+            float latitude = 0;
+            float longitude = 0;
+            String country = null;
+            String city = null;
+            String eventType = null;
+            int year = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "eventID" -> eventID = readString(in);
+                    case "associatedUsername" -> associatedUsername = readString(in);
+                    case "personID" -> personID = readString(in);
+                    case "latitude" -> latitude = readFloat(in, latitude);
+                    case "longitude" -> longitude = readFloat(in, longitude);
+                    case "country" -> country = readString(in);
+                    case "city" -> city = readString(in);
+                    case "eventType" -> eventType = readString(in);
+                    case "year" -> year = readInt(in, year);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Event(eventID, associatedUsername, personID, latitude, longitude, country, city, eventType,
+                    year);
+        }
+    }
+
+    private static class UserAdapter extends TypeAdapter<User> {
+        @Override
+        public void write(JsonWriter out, User user) throws IOException {
+            out.beginObject();
+            out.name("username").value(user.getUsername());
+            out.name("password").value(user.getPassword());
+            out.name("email").value(user.getEmail());
+            out.name("firstName").value(user.getFirstName());
+            out.name("lastName").value(user.getLastName());
+            out.name("gender").value(user.getGender());
+            out.name("personID").value(user.getPersonID());
+            out.endObject();
+        }
+
+        @Override
+        public User read(JsonReader in) throws IOException {
+            String username = null;
+            String password = null;
+            String email = null;
+            String firstName = null;
+            String lastName = null;
+            String gender = null;
+            String personID = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "username" -> username = readString(in);
+                    case "password" -> password = readString(in);
+                    case "email" -> email = readString(in);
+                    case "firstName" -> firstName = readString(in);
+                    case "lastName" -> lastName = readString(in);
+                    case "gender" -> gender = readString(in);
+                    case "personID" -> personID = readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new User(username, password, email, firstName, lastName, gender, personID);
+        }
+    }
+
+    private static class LocationAdapter extends TypeAdapter<Location> {
+        @Override
+        public void write(JsonWriter out, Location location) throws IOException {
+            out.beginObject();
+            out.name("country").value(location.getCountry());
+            out.name("city").value(location.getCity());
+            out.name("latitude").value((Number) location.getLatitude());
+            out.name("longitude").value((Number) location.getLongitude());
+            out.endObject();
+        }
+
+        @Override
+        public Location read(JsonReader in) throws IOException {
+            String country = null;
+            String city = null;
+            float latitude = 0;
+            float longitude = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "country" -> country = readString(in);
+                    case "city" -> city = readString(in);
+                    case "latitude" -> latitude = readFloat(in, latitude);
+                    case "longitude" -> longitude = readFloat(in, longitude);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Location(country, city, latitude, longitude);
+        }
+    }
+
+    private static class PersonResultAdapter extends TypeAdapter<PersonResult> {
+        @Override
+        public void write(JsonWriter out, PersonResult result) throws IOException {
+            out.beginObject();
+            if (result.getData() != null) {
+                out.name("data").beginArray();
+                for (Person person : result.getData()) {
+                    PERSON.write(out, person);
+                }
+                out.endArray();
+            }
+            out.name("nextCursor").value(result.getNextCursor());
+            out.name("message").value(result.getMessage());
+            out.name("success").value(result.isSuccess());
+            out.endObject();
+        }
+
+        @Override
+        public PersonResult read(JsonReader in) throws IOException {
+            PersonResult result = new PersonResult(null, null, false);
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "data" -> {
+                        List<Person> data = readArray(in, PERSON);
+                        result.setData(data == null ? null : data.toArray(new Person[0]));
+                    }
+                    case "nextCursor" -> result.setNextCursor(readString(in));
+                    case "message" -> result.setMessage(readString(in));
+                    case "success" -> result.setSuccess(readBoolean(in, result.isSuccess()));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return result;
+        }
+    }
+
+    private static class EventResultAdapter extends TypeAdapter<EventResult> {
+        @Override
+        public void write(JsonWriter out, EventResult result) throws IOException {
+            out.beginObject();
+            if (result.getData() != null) {
+                out.name("data").beginArray();
+                for (Event event : result.getData()) {
+                    EVENT.write(out, event);
+                }
+                out.endArray();
+            }
+            out.name("nextCursor").value(result.getNextCursor());
+            out.name("message").value(result.getMessage());
+            out.name("success").value(result.isSuccess());
+            out.endObject();
+        }
+
+        @Override
+        public EventResult read(JsonReader in) throws IOException {
+            EventResult result = new EventResult(null, null, false);
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "data" -> {
+                        List<Event> data = readArray(in, EVENT);
+                        result.setData(data == null ? null : data.toArray(new Event[0]));
+                    }
+                    case "nextCursor" -> result.setNextCursor(readString(in));
+                    case "message" -> result.setMessage(readString(in));
+                    case "success" -> result.setSuccess(readBoolean(in, result.isSuccess()));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return result;
+        }
+    }
+
+    /**
+     * Read a string the way Gson does, accepting booleans and numbers as text
+     */
+    private static String readString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    /**
+     * Read a float, keeping the current value when the json value is null like Gson does for primitives
+     */
+    private static float readFloat(JsonReader in, float current) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return current;
+        }
+        try {
+            return (float) in.nextDouble();
+        }
+        catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static int readInt(JsonReader in, int current) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return current;
+        }
+        try {
+            return in.nextInt();
+        }
+        catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static boolean readBoolean(JsonReader in, boolean current) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return current;
+        }
+        return in.nextBoolean();
+    }
+
+    /**
+     * Read an array of elements, or null for a json null
+     */
+    private static <T> List<T> readArray(JsonReader in, TypeAdapter<T> adapter) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<T> elements = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            elements.add(adapter.read(in));
+        }
+        in.endArray();
+        return elements;
+    }
+}
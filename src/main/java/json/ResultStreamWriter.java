@@ -0,0 +1,136 @@
+package json;
+
+import com.google.gson.stream.JsonWriter;
+import model.Event;
+import model.Person;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Writes a successful PersonResult or EventResult one element at a time, producing the same json as Encoder
+ * without holding the whole result in memory
+ * @param <T> Element type
+ */
+public class ResultStreamWriter<T> {
+    /**
+     * Opens the response body; called once, before the first element is written
+     */
+    public interface Opener {
+        OutputStream open() throws IOException;
+    }
+
+    /**
+     * Writes one element as a json object
+     * @param <T> Element type
+     */
+    public interface ElementWriter<T> {
+        void write(JsonWriter writer, T element) throws IOException;
+    }
+
+    private final Opener opener;
+    private final ElementWriter<T> elementWriter;
+    private JsonWriter writer;
+
+    /**
+     * Create new ResultStreamWriter
+     * @param opener Opens the response body when the first element is written
+     * @param elementWriter Writes one element as a json object
+     */
+    public ResultStreamWriter(Opener opener, ElementWriter<T> elementWriter) {
+        this.opener = opener;
+        this.elementWriter = elementWriter;
+    }
+
+    /**
+     * Create a writer for PersonResult data
+     * @param opener Opens the response body when the first person is written
+     * @return writer for persons
+     */
+    public static ResultStreamWriter<Person> forPersons(Opener opener) {
+        return new ResultStreamWriter<>(opener, ModelAdapters.PERSON::write);
+    }
+
+    /**
+     * Create a writer for PersonResult data that writes only some fields of each person
+     * @param opener Opens the response body when the first person is written
+     * @param fields Names of the fields to write, null for all
+     * @return writer for persons
+     */
+    public static ResultStreamWriter<Person> forPersons(Opener opener, Set<String> fields) {
+        return new ResultStreamWriter<>(opener, (writer, person) -> ModelAdapters.writePerson(writer, person, fields));
+    }
+
+    /**
+     * Create a writer for EventResult data
+     * @param opener Opens the response body when the first event is written
+     * @return writer for events
+     */
+    public static ResultStreamWriter<Event> forEvents(Opener opener) {
+        return new ResultStreamWriter<>(opener, ModelAdapters.EVENT::write);
+    }
+
+    /**
+     * Create a writer for EventResult data that writes only some fields of each event
+     * @param opener Opens the response body when the first event is written
+     * @param fields Names of the fields to write, null for all
+     * @return writer for events
+     */
+    public static ResultStreamWriter<Event> forEvents(Opener opener, Set<String> fields) {
+        return new ResultStreamWriter<>(opener, (writer, event) -> ModelAdapters.writeEvent(writer, event, fields));
+    }
+
+    /**
+     * Write the next element, opening the response and starting the data array on the first call
+     * @param element Element to write
+     * @throws IOException on failure to write to the response
+     */
+    public void write(T element) throws IOException {
+        start();
+        elementWriter.write(writer, element);
+    }
+
+    /**
+     * Whether any element has been written, in which case the response has been opened
+     * @return true once the response has been opened
+     */
+    public boolean isStarted() {
+        return writer != null;
+    }
+
+    /**
+     * Close the data array and mark the result successful
+     * @throws IOException on failure to write to the response
+     */
+    public void finish() throws IOException {
+        finish(null);
+    }
+
+    /**
+     * Close the data array, add the cursor for the next page and mark the result successful. Opens the
+     * response first if nothing was written, since an empty page is still a successful result.
+     * @param nextCursor Cursor for the next page, null on the last page
+     * @throws IOException on failure to write to the response
+     */
+    public void finish(String nextCursor) throws IOException {
+        start();
+        writer.endArray();
+        writer.name("nextCursor").value(nextCursor);
+        writer.name("success").value(true);
+        writer.endObject();
+        writer.flush();
+    }
+
+    private void start() throws IOException {
+        if (writer == null) {
+            writer = new JsonWriter(new OutputStreamWriter(opener.open(), StandardCharsets.UTF_8));
+            // Gson leaves out null fields
+            writer.setSerializeNulls(false);
+            writer.beginObject();
+            writer.name("data").beginArray();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package json;
+
+import com.google.gson.stream.JsonWriter;
+import model.Event;
+import model.Person;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a successful SyncResult one section at a time as rows are read, producing the same json as Encoder
+ * without holding the changes in memory. Sections are written in SyncResult's field order: persons, events,
+ * deletedPersons, deletedEvents.
+ */
+public class SyncStreamWriter {
+    private final ResultStreamWriter.Opener opener;
+    private JsonWriter writer;
+    private boolean inSection;
+
+    /**
+     * Create new SyncStreamWriter
+     * @param opener Opens the response body when the sync starts
+     */
+    public SyncStreamWriter(ResultStreamWriter.Opener opener) {
+        this.opener = opener;
+    }
+
+    /**
+     * Open the response and write the revision the client should sync from next
+     * @param revision Revision to pass as "since" on the next sync
+     * @param reset Whether the client must drop its copy
+     * @throws IOException on failure to write to the response
+     */
+    public void start(long revision, boolean reset) throws IOException {
+        writer = new JsonWriter(new OutputStreamWriter(opener.open(), StandardCharsets.UTF_8));
+        writer.setSerializeNulls(false);
+        writer.beginObject();
+        writer.name("revision").value(revision);
+        writer.name("reset").value(reset);
+    }
+
+    /**
+     * Whether the response has been opened
+     * @return true once started
+     */
+    public boolean isStarted() {
+        return writer != null;
+    }
+
+    /**
+     * Begin the next array of the result, closing the one before it
+     * @param name persons, events, deletedPersons or deletedEvents
+     * @throws IOException on failure to write to the response
+     */
+    public void section(String name) throws IOException {
+        endSection();
+        writer.name(name).beginArray();
+        inSection = true;
+    }
+
+    public void writePerson(Person person) throws IOException {
+        ModelAdapters.PERSON.write(writer, person);
+    }
+
+    public void writeEvent(Event event) throws IOException {
+        ModelAdapters.EVENT.write(writer, event);
+    }
+
+    public void writeID(String id) throws IOException {
+        writer.value(id);
+    }
+
+    /**
+     * Close the last array and mark the result successful
+     * @throws IOException on failure to write to the response
+     */
+    public void finish() throws IOException {
+        endSection();
+        writer.name("success").value(true);
+        writer.endObject();
+        writer.flush();
+    }
+
+    private void endSection() throws IOException {
+        if (inSection) {
+            writer.endArray();
+            inSection = false;
+        }
+    }
+}
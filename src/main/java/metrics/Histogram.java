@@ -0,0 +1,70 @@
+package metrics;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with power-of-two microsecond buckets, from 1us up to about 67s. Recording finds the
+ * bucket from the leading zeros of the duration and bumps two striped counters, so it takes no locks and
+ * costs a few nanoseconds.
+ */
+public class Histogram {
+    /**
+     * Number of bounded buckets; bucket i holds durations of at most 2^i microseconds
+     */
+    static final int BUCKETS = 27;
+    /**
+     * Upper bound of each bucket in seconds, as written in the le label
+     */
+    static final String[] BOUNDS = new String[BUCKETS];
+
+    static {
+        for (int i = 0; i < BUCKETS; i++) {
+            BOUNDS[i] = BigDecimal.valueOf(1L << i).movePointLeft(6).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    /**
+     * Count per bucket, with one more for durations past the last bound
+     */
+    private final LongAdder[] counts = new LongAdder[BUCKETS + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    Histogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record one duration
+     * @param nanos Duration in nanoseconds, as measured with System.nanoTime
+     */
+    public void record(long nanos) {
+        long micros = nanos / 1_000;
+        int bucket = micros <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(micros - 1);
+        counts[Math.min(bucket, BUCKETS)].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * Record the time since a start taken with System.nanoTime
+     * @param startNanos Start time
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Count in one bucket, not cumulative
+     * @param bucket Bucket index, {@link #BUCKETS} for the overflow bucket
+     * @return number of durations recorded in the bucket
+     */
+    long bucketCount(int bucket) {
+        return counts[bucket].sum();
+    }
+
+    long getSumNanos() {
+        return sumNanos.sum();
+    }
+}
@@ -0,0 +1,136 @@
+package metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide counters and histograms, written out for /metrics. Callers look a metric up once and keep it,
+ * so the hot path only touches striped counters; lookups themselves are a concurrent map read.
+ */
+public class MetricsRegistry {
+    private static final MetricsRegistry instance = new MetricsRegistry();
+
+    /**
+     * Families by name, kept sorted so scrapes are stable
+     */
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+    /**
+     * Sources of values that are read at scrape time rather than recorded
+     */
+    private final List<Collector> collectors = new CopyOnWriteArrayList<>();
+
+    MetricsRegistry() {}
+
+    /**
+     * Get the process-wide registry
+     * @return shared registry
+     */
+    public static MetricsRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get or create a counter
+     * @param name Metric name, ending in _total
+     * @param help One line description
+     * @param labels Labels from {@link #labels}, empty for none
+     * @return shared counter
+     */
+    public Counter counter(String name, String help, String labels) {
+        return (Counter) family(name, "counter", help).children.computeIfAbsent(labels, key -> new Counter());
+    }
+
+    /**
+     * Get or create a latency histogram
+     * @param name Metric name, ending in _seconds
+     * @param help One line description
+     * @param labels Labels from {@link #labels}, empty for none
+     * @return shared histogram
+     */
+    public Histogram histogram(String name, String help, String labels) {
+        return (Histogram) family(name, "histogram", help).children.computeIfAbsent(labels, key -> new Histogram());
+    }
+
+    /**
+     * Add a source of values read at scrape time
+     * @param collector Collector to call on every scrape
+     */
+    public void register(Collector collector) {
+        collectors.add(collector);
+    }
+
+    /**
+     * Format label names and values for a sample, escaping the values
+     * @param namesAndValues Alternating label names and values
+     * @return labels as written between braces
+     */
+    public static String labels(String... namesAndValues) {
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+            if (labels.length() > 0) {
+                labels.append(',');
+            }
+            String value = namesAndValues[i + 1];
+            labels.append(namesAndValues[i]).append("=\"")
+                    .append(value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append('"');
+        }
+        return labels.toString();
+    }
+
+    /**
+     * Write every metric and collector in the Prometheus text format
+     * @return scrape body
+     */
+    public String scrape() {
+        PrometheusWriter out = new PrometheusWriter();
+        for (Family family : families.values()) {
+            out.header(family.name, family.type, family.help);
+            for (Map.Entry<String, Object> child : family.children.entrySet()) {
+                if (child.getValue() instanceof Histogram histogram) {
+                    out.histogram(family.name, child.getKey(), histogram);
+                }
+                else {
+                    out.sample(family.name, child.getKey(), ((Counter) child.getValue()).get());
+                }
+            }
+        }
+        for (Collector collector : collectors) {
+            collector.collect(out);
+        }
+        return out.toString();
+    }
+
+    private Family family(String name, String type, String help) {
+        Family family = families.computeIfAbsent(name, key -> new Family(name, type, help));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already a " + family.type);
+        }
+        return family;
+    }
+
+    /**
+     * Writes values it reads from elsewhere, such as cache and pool statistics, on each scrape
+     */
+    public interface Collector {
+        void collect(PrometheusWriter out);
+    }
+
+    /**
+     * Metrics sharing a name, one per set of labels
+     */
+    private static class Family {
+        final String name;
+        final String type;
+        final String help;
+        final Map<String, Object> children = new ConcurrentSkipListMap<>();
+
+        Family(String name, String type, String help) {
+            this.name = name;
+            this.type = type;
+            this.help = help;
+        }
+    }
+}
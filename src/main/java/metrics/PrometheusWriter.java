@@ -0,0 +1,78 @@
+package metrics;
+
+/**
+ * Builds a scrape in the Prometheus text exposition format
+ */
+public class PrometheusWriter {
+    private final StringBuilder out = new StringBuilder(8192);
+
+    PrometheusWriter() {}
+
+    /**
+     * Write the HELP and TYPE lines that start a metric family
+     * @param name Metric name
+     * @param type counter, gauge or histogram
+     * @param help One line description
+     */
+    public void header(String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n"))
+                .append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Write one sample of the current family
+     * @param name Sample name
+     * @param labels Labels from {@link MetricsRegistry#labels}, empty for none
+     * @param value Sample value
+     */
+    public void sample(String name, String labels, long value) {
+        start(name, labels).append(value).append('\n');
+    }
+
+    public void sample(String name, String labels, double value) {
+        start(name, labels).append(value).append('\n');
+    }
+
+    /**
+     * Write a single-sample family
+     */
+    public void counter(String name, String help, long value) {
+        header(name, "counter", help);
+        sample(name, "", value);
+    }
+
+    /**
+     * Write a single-sample family
+     */
+    public void gauge(String name, String help, long value) {
+        header(name, "gauge", help);
+        sample(name, "", value);
+    }
+
+    void histogram(String name, String labels, Histogram histogram) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < Histogram.BUCKETS; i++) {
+            cumulative += histogram.bucketCount(i);
+            sample(name + "_bucket", prefix + "le=\"" + Histogram.BOUNDS[i] + "\"", cumulative);
+        }
+        cumulative += histogram.bucketCount(Histogram.BUCKETS);
+        sample(name + "_bucket", prefix + "le=\"+Inf\"", cumulative);
+        sample(name + "_sum", labels, histogram.getSumNanos() / 1e9);
+        sample(name + "_count", labels, cumulative);
+    }
+
+    private StringBuilder start(String name, String labels) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        return out.append(' ');
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
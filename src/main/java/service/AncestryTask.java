@@ -0,0 +1,172 @@
+package service;
+
+import model.Event;
+import model.Location;
+import model.Person;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Generates the ancestors of one person. Subtrees deeper than a few generations are split into a task for the
+ * mother's side and one for the father's, each with its own split of the random generator, so large fills
+ * use every core. Each couple is generated exactly as before; only which random stream it draws from changes.
+ */
+class AncestryTask extends RecursiveAction {
+    /**
+     * Subtrees of at most this many generations (63 persons) are generated without forking
+     */
+    static final int SEQUENTIAL_GENERATIONS = 5;
+
+    private final GenerationData data;
+    private final SplittableRandom rng;
+    private final Person child;
+    private final int generations;
+    private final Event childBirth;
+    /**
+     * Persons generated by this task and its subtasks, the child first
+     */
+    private final List<Person> persons = new ArrayList<>();
+    /**
+     * Events generated by this task and its subtasks
+     */
+    private final List<Event> events = new ArrayList<>();
+
+    /**
+     * Create new AncestryTask
+     * @param data Names and locations to pick from
+     * @param rng Random number generator owned by this task
+     * @param child Person whose ancestors are generated
+     * @param generations Number of generations to generate
+     * @param childBirth Birth event of the child
+     */
+    AncestryTask(GenerationData data, SplittableRandom rng, Person child, int generations, Event childBirth) {
+        this.data = data;
+        this.rng = rng;
+        this.child = child;
+        this.generations = generations;
+        this.childBirth = childBirth;
+    }
+
+    @Override
+    protected void compute() {
+        if (generations <= SEQUENTIAL_GENERATIONS) {
+            addParents(child, generations, childBirth);
+            return;
+        }
+        Parents parents = createParents(child, childBirth);
+        AncestryTask motherTask = new AncestryTask(data, rng.split(), parents.mother, generations - 1,
+                parents.motherBirth);
+        AncestryTask fatherTask = new AncestryTask(data, rng.split(), parents.father, generations - 1,
+                parents.fatherBirth);
+        invokeAll(motherTask, fatherTask);
+        persons.addAll(motherTask.persons);
+        persons.addAll(fatherTask.persons);
+        events.addAll(motherTask.events);
+        events.addAll(fatherTask.events);
+    }
+
+    List<Person> getPersons() {
+        return persons;
+    }
+
+    List<Event> getEvents() {
+        return events;
+    }
+
+    /**
+     * Recursive function that adds a parent
+     * @param child Person object of the child of the parents
+     * @param generations Number of generations left
+     * @param childBirth Birth event of the child
+     */
+    private void addParents(Person child, int generations, Event childBirth) {
+        if (generations == 0) {
+            persons.add(child);
+            return;
+        }
+        Parents parents = createParents(child, childBirth);
+        addParents(parents.mother, generations - 1, parents.motherBirth);
+        addParents(parents.father, generations - 1, parents.fatherBirth);
+    }
+
+    /**
+     * Create the parents of a child along with their births, marriage and deaths, and record the child
+     * @param child Person object of the child of the parents
+     * @param childBirth Birth event of the child
+     * @return the parents and their birth events
+     */
+    private Parents createParents(Person child, Event childBirth) {
+        String motherID = IdGenerator.next();
+        String fatherID = IdGenerator.next();
+        child.setMotherID(motherID);
+        child.setFatherID(fatherID);
+        String fName = data.randomFemaleName(rng);
+        String maidenName = data.randomSurname(rng);
+        // Create mother
+        Person mother = new Person(motherID, child.getAssociatedUsername(), fName,
+                maidenName, "f", null, null, fatherID);
+
+        //Create father
+        String mName = data.randomMaleName(rng);
+        Person father = new Person(fatherID, child.getAssociatedUsername(), mName, child.getLastName(), "m",
+                null, null, motherID);
+
+        // Create events
+        Location mBirthLocation = data.randomLocation(rng);
+        Event mBirth = new Event(IdGenerator.next(), child.getAssociatedUsername(), mother.getPersonID(),
+                mBirthLocation.getLatitude(), mBirthLocation.getLongitude(), mBirthLocation.getCountry(),
+                mBirthLocation.getCity(), "birth",
+                rng.nextInt(childBirth.getYear() - 45, childBirth.getYear() - 18));
+        Location fBirthLocation = data.randomLocation(rng);
+        Event fBirth = new Event(IdGenerator.next(), child.getAssociatedUsername(), father.getPersonID(),
+                fBirthLocation.getLatitude(), fBirthLocation.getLongitude(), fBirthLocation.getCountry(),
+                fBirthLocation.getCity(), "birth",
+                rng.nextInt(childBirth.getYear() - 50, childBirth.getYear() - 18));
+        Location marriageLocation = data.randomLocation(rng);
+        int marriageBound = Math.max(fBirth.getYear(), mBirth.getYear()) + 18;
+        int marriageYear = rng.nextInt(marriageBound, childBirth.getYear());
+        Event mMarriage = new Event(IdGenerator.next(), child.getAssociatedUsername(), mother.getPersonID(),
+                marriageLocation.getLatitude(), marriageLocation.getLongitude(), marriageLocation.getCountry(),
+                marriageLocation.getCity(), "marriage", marriageYear);
+        Event fMarriage = new Event(IdGenerator.next(), child.getAssociatedUsername(), father.getPersonID(),
+                marriageLocation.getLatitude(), marriageLocation.getLongitude(), marriageLocation.getCountry(),
+                marriageLocation.getCity(), "marriage", marriageYear);
+
+        Location deathLocation = data.randomLocation(rng);
+        Event mDeath = new Event(IdGenerator.next(), child.getAssociatedUsername(), mother.getPersonID(),
+                deathLocation.getLatitude(), deathLocation.getLongitude(), deathLocation.getCountry(),
+                fBirthLocation.getCity(), "death",
+                rng.nextInt(childBirth.getYear(), mBirth.getYear() + 100));
+        Event fDeath = new Event(IdGenerator.next(), child.getAssociatedUsername(), father.getPersonID(),
+                deathLocation.getLatitude(), deathLocation.getLongitude(), deathLocation.getCountry(),
+                deathLocation.getCity(), "death",
+                rng.nextInt(childBirth.getYear(), fBirth.getYear() + 100));
+        events.add(mDeath);
+        events.add(fDeath);
+
+        persons.add(child);
+        events.add(mBirth);
+        events.add(fBirth);
+        events.add(mMarriage);
+        events.add(fMarriage);
+
+        return new Parents(mother, mBirth, father, fBirth);
+    }
+
+    private static class Parents {
+        final Person mother;
+        final Event motherBirth;
+        final Person father;
+        final Event fatherBirth;
+
+        Parents(Person mother, Event motherBirth, Person father, Event fatherBirth) {
+            this.mother = mother;
+            this.motherBirth = motherBirth;
+            this.father = father;
+            this.fatherBirth = fatherBirth;
+        }
+    }
+}
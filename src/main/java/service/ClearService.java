@@ -1,9 +1,13 @@
 package service;
 
+import dao.AuthTokenCache;
 import dao.DataAccessException;
 import dao.Database;
+import dao.FamilyTreeCache;
 import result.ClearResult;
 
+import java.sql.SQLException;
+
 /**
  * Performs clear action
  */
@@ -21,15 +25,27 @@ public class ClearService extends Service {
      * @return the result of the clear request
      */
     public ClearResult clear() {
+        Database db = new Database();
         try {
-            Database db = new Database();
             db.open(dbPath);
             db.clearTables();
             db.close(true);
+            AuthTokenCache.getInstance().invalidateAll();
+            FamilyTreeCache.getInstance().invalidateAll();
         }
         catch (DataAccessException e) {
             return new ClearResult("Error: " + e.getMessage(), false);
         }
+        finally {
+            try {
+                if (!db.isClosed()) {
+                    db.close(false);
+                }
+            }
+            catch (DataAccessException | SQLException e) {
+                e.printStackTrace();
+            }
+        }
         return new ClearResult("Clear succeeded", true);
     }
 }
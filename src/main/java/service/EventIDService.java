@@ -27,7 +27,7 @@ public class EventIDService extends Service{
     public EventIDResult eventID(String token, String eventID) throws DataAccessException {
         Database db = new Database();
         try {
-            AuthTokenDAO authTokenDAO = new AuthTokenDAO(db.open(dbPath));
+            AuthTokenDAO authTokenDAO = new AuthTokenDAO(db.openReadOnly(dbPath));
             String username = authTokenDAO.validate(token);
             if (username == null) {
                 return new EventIDResult("Error: Unable to authenticate user", false);
@@ -44,7 +44,7 @@ public class EventIDService extends Service{
                     event.getYear(), null, true);
         }
         catch (DataAccessException e) {
-            return new EventIDResult("Error: Unable to authenticate user", false);
+            return new EventIDResult("Error: " + e.getMessage(), false);
         }
         finally {
             db.close(false);
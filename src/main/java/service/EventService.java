@@ -3,10 +3,15 @@ package service;
 import dao.AuthTokenDAO;
 import dao.DataAccessException;
 import dao.Database;
+import dao.FamilyTreeCache;
 import dao.EventDAO;
+import json.ResultStreamWriter;
 import model.Event;
+import request.PageRequest;
 import result.EventResult;
 
+import java.io.IOException;
+
 /**
  * Performs event action
  */
@@ -26,21 +31,120 @@ public class EventService extends Service {
     public EventResult event(String token) throws DataAccessException {
         Database db = new Database();
         try {
-            AuthTokenDAO authTokenDAO = new AuthTokenDAO(db.open(dbPath));
+            AuthTokenDAO authTokenDAO = new AuthTokenDAO(db.openReadOnly(dbPath));
             String username = authTokenDAO.validate(token);
             if (username == null) {
                 return new EventResult(null, "Error: Unable to authenticate user", false);
             }
 
-            EventDAO eventDAO = new EventDAO(db.getConnection());
-            Event[] events = eventDAO.getAllEventsByUsername(username);
+            FamilyTreeCache cache = FamilyTreeCache.getInstance();
+            Event[] events = cache.getEvents(dbPath, username);
             if (events == null) {
+                long version = cache.version(dbPath, username);
+                EventDAO eventDAO = new EventDAO(db.getConnection());
+                events = eventDAO.getAllEventsByUsername(username);
+                cache.putEvents(dbPath, username, version, events == null ? new Event[0] : events);
+            }
+            if (events == null || events.length == 0) {
                 return new EventResult(null, "Error: Unable to find events", false);
             }
             return new EventResult(events, null, true);
         }
         catch (DataAccessException e) {
-            return new EventResult(null, "Error: Unable to authenticate user", false);
+            return new EventResult(null, "Error: " + e.getMessage(), false);
+        }
+        finally {
+            db.close(false);
+        }
+    }
+
+    /**
+     * Write all events associated with current user straight to a response as they are read
+     * @param token Authentication token for current user
+     * @param out Writer that opens the response when the first event is written
+     * @return an error result if nothing was written, otherwise a success result without data
+     * @throws IOException on failure to write to the response
+     */
+    public EventResult streamEvents(String token, ResultStreamWriter<Event> out) throws DataAccessException, IOException {
+        Database db = new Database();
+        try {
+            AuthTokenDAO authTokenDAO = new AuthTokenDAO(db.openReadOnly(dbPath));
+            String username = authTokenDAO.validate(token);
+            if (username == null) {
+                return new EventResult(null, "Error: Unable to authenticate user", false);
+            }
+
+            FamilyTreeCache cache = FamilyTreeCache.getInstance();
+            Event[] events = cache.getEvents(dbPath, username);
+            int count;
+            if (events == null) {
+                // Write each row as it is read, keeping it for the cache while the tree could fit
+                long version = cache.version(dbPath, username);
+                FamilyTreeCache.Collector<Event> read = cache.collectEvents();
+                EventDAO eventDAO = new EventDAO(db.getConnection());
+                eventDAO.forEachEventByUsername(username, row -> {
+                    read.add(row);
+                    out.write(row);
+                });
+                if (read.isComplete()) {
+                    cache.putEvents(dbPath, username, version, read.toArray(new Event[0]));
+                }
+                count = read.size();
+            }
+            else {
+                for (Event row : events) {
+                    out.write(row);
+                }
+                count = events.length;
+            }
+            if (count == 0) {
+                return new EventResult(null, "Error: Unable to find events", false);
+            }
+            out.finish();
+            return new EventResult(null, null, true);
+        }
+        catch (DataAccessException e) {
+            if (out.isStarted()) {
+                // Headers are already sent, so the response can only be cut short
+                throw new IOException(e.getMessage());
+            }
+            return new EventResult(null, "Error: " + e.getMessage(), false);
+        }
+        finally {
+            db.close(false);
+        }
+    }
+
+    /**
+     * Write one page of the events associated with current user straight to a response as they are read.
+     * Pages are read from the database so filters and limits apply in SQL; the cache holds only whole trees.
+     * @param token Authentication token for current user
+     * @param page Page to read, with its filters
+     * @param out Writer that opens the response when the first event is written
+     * @return an error result if nothing was written, otherwise a success result without data
+     * @throws IOException on failure to write to the response
+     */
+    public EventResult streamEventPage(String token, PageRequest page, ResultStreamWriter<Event> out)
+            throws DataAccessException, IOException {
+        Database db = new Database();
+        try {
+            AuthTokenDAO authTokenDAO = new AuthTokenDAO(db.openReadOnly(dbPath));
+            String username = authTokenDAO.validate(token);
+            if (username == null) {
+                return new EventResult(null, "Error: Unable to authenticate user", false);
+            }
+
+            EventDAO eventDAO = new EventDAO(db.getConnection());
+            String nextCursor = eventDAO.forEachEventPage(username, page, out::write);
+            out.finish(nextCursor);
+            return new EventResult(null, null, true);
+        }
+        catch (DataAccessException e) {
+            if (out.isStarted()) {
+                // Headers are already sent, so the response can only be cut short
+                throw new IOException(e.getMessage());
+            }
+            return new EventResult(null, "Error: " + e.getMessage(), false);
         }
         finally {
             db.close(false);
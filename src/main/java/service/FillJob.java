@@ -0,0 +1,114 @@
+package service;
+
+import request.FillRequest;
+import result.FillJobResult;
+
+/**
+ * A fill running in the background, tracked so clients can poll for its progress
+ */
+public class FillJob implements FillProgress {
+    public enum State {QUEUED, RUNNING, SUCCEEDED, FAILED}
+
+    private final String jobID;
+    private final FillRequest request;
+    private volatile State state = State.QUEUED;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    /**
+     * Persons and events the fill will write, estimated from the generation count until the tree is built
+     */
+    private volatile long personsTotal;
+    private volatile long eventsTotal;
+    private volatile int personsWritten;
+    private volatile int eventsWritten;
+    private volatile String message;
+
+    /**
+     * Create new FillJob
+     * @param jobID Unique ID clients poll with
+     * @param request Fill to run
+     */
+    FillJob(String jobID, FillRequest request) {
+        this.jobID = jobID;
+        this.request = request;
+        // A full tree of g generations, plus the user: 2^(g+1) - 1 persons, 3 events per ancestor and one birth.
+        // Capped so the estimate stays in range; no fill that deep could be held in memory anyway.
+        long persons = (2L << Math.min(Math.max(request.getGenerations(), 0), 40)) - 1;
+        this.personsTotal = persons;
+        this.eventsTotal = 3 * persons - 2;
+    }
+
+    @Override
+    public void generated(int persons, int events) {
+        personsTotal = persons;
+        eventsTotal = events;
+    }
+
+    @Override
+    public void written(int persons, int events) {
+        personsWritten = persons;
+        eventsWritten = events;
+    }
+
+    void started() {
+        startedAt = System.currentTimeMillis();
+        state = State.RUNNING;
+    }
+
+    void finished(boolean success, String resultMessage) {
+        message = resultMessage;
+        finishedAt = System.currentTimeMillis();
+        state = success ? State.SUCCEEDED : State.FAILED;
+    }
+
+    public String getJobID() {
+        return jobID;
+    }
+
+    public FillRequest getRequest() {
+        return request;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isFinished() {
+        State current = state;
+        return current == State.SUCCEEDED || current == State.FAILED;
+    }
+
+    /**
+     * Whether the job finished long enough ago to be forgotten
+     * @param now Current time in milliseconds
+     * @param ttlMillis Milliseconds a finished job is kept
+     * @return true once the job's record has expired
+     */
+    boolean isExpired(long now, long ttlMillis) {
+        return isFinished() && now - finishedAt > ttlMillis;
+    }
+
+    /**
+     * Snapshot of the job for the status endpoint
+     * @return status result
+     */
+    public FillJobResult toResult() {
+        State current = state;
+        long persons = personsWritten;
+        long events = eventsWritten;
+        Long etaSeconds = null;
+        if (current == State.RUNNING && persons + events > 0) {
+            // Extrapolate from the rate so far; generation time is folded into that rate
+            double done = (double) (persons + events) / (personsTotal + eventsTotal);
+            long elapsed = System.currentTimeMillis() - startedAt;
+            etaSeconds = (long) Math.ceil(elapsed * (1 - done) / done / 1000);
+        }
+        else if (current == State.SUCCEEDED || current == State.FAILED) {
+            etaSeconds = 0L;
+        }
+        boolean success = current != State.FAILED;
+        return new FillJobResult(jobID, current.name().toLowerCase(), request.getUsername(),
+                request.getGenerations(), personsWritten, eventsWritten, personsTotal, eventsTotal, etaSeconds,
+                message, success);
+    }
+}
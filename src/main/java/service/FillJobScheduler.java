@@ -0,0 +1,155 @@
+package service;
+
+import request.FillRequest;
+import result.FillResult;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs fills in the background on a small bounded pool. A user has at most one queued or running fill;
+ * asking again returns that job. Finished jobs are kept for a while so clients can read the outcome.
+ */
+public class FillJobScheduler {
+    /**
+     * Path to database
+     */
+    private final String dbPath;
+    /**
+     * Milliseconds a finished job is kept
+     */
+    private final long ttlMillis;
+    private final ThreadPoolExecutor executor;
+    /**
+     * Fill budget shared with synchronous fills, null if unlimited
+     */
+    private final Semaphore fillPermits;
+    private final Map<String, FillJob> jobs = new ConcurrentHashMap<>();
+    /**
+     * Queued or running job per username
+     */
+    private final Map<String, FillJob> activeJobs = new ConcurrentHashMap<>();
+
+    /**
+     * Create new FillJobScheduler
+     * @param dbPath Path to database
+     * @param maxConcurrent Maximum number of fills running at once
+     * @param queueCapacity Maximum number of fills waiting to run
+     * @param ttlMillis Milliseconds a finished job is kept
+     */
+    public FillJobScheduler(String dbPath, int maxConcurrent, int queueCapacity, long ttlMillis) {
+        this(dbPath, maxConcurrent, queueCapacity, ttlMillis, null);
+    }
+
+    /**
+     * Create new FillJobScheduler whose jobs count against a fill budget shared with synchronous fills
+     * @param dbPath Path to database
+     * @param maxConcurrent Maximum number of jobs taken off the queue at once
+     * @param queueCapacity Maximum number of fills waiting to run
+     * @param ttlMillis Milliseconds a finished job is kept
+     * @param fillPermits Permit a job holds while it fills, null if unlimited
+     */
+    public FillJobScheduler(String dbPath, int maxConcurrent, int queueCapacity, long ttlMillis,
+                            Semaphore fillPermits) {
+        if (maxConcurrent < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Fill job concurrency and queue capacity must be positive");
+        }
+        this.dbPath = dbPath;
+        this.ttlMillis = ttlMillis;
+        this.fillPermits = fillPermits;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "fms-fill-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queue a fill, or return the user's fill that is already queued or running
+     * @param request Fill to run
+     * @return the job running the fill
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public FillJob submit(FillRequest request) {
+        evictExpired();
+        FillJob[] created = new FillJob[1];
+        FillJob job = activeJobs.computeIfAbsent(request.getUsername(), username -> {
+            created[0] = new FillJob(UUID.randomUUID().toString(), request);
+            return created[0];
+        });
+        if (created[0] == null) {
+            return job;
+        }
+        jobs.put(job.getJobID(), job);
+        try {
+            executor.execute(() -> run(job));
+        }
+        catch (RejectedExecutionException e) {
+            jobs.remove(job.getJobID());
+            activeJobs.remove(request.getUsername(), job);
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Look up a job
+     * @param jobID ID returned when the job was submitted
+     * @return the job, or null if unknown or expired
+     */
+    public FillJob get(String jobID) {
+        evictExpired();
+        return jobs.get(jobID);
+    }
+
+    /**
+     * Stop taking jobs; running fills are left to finish
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void run(FillJob job) {
+        try {
+            if (fillPermits != null) {
+                // Stays queued until a synchronous fill or another job finishes
+                fillPermits.acquire();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finished(false, "Error: Fill was cancelled");
+            activeJobs.remove(job.getRequest().getUsername(), job);
+            return;
+        }
+        job.started();
+        try {
+            FillResult result = new FillService(dbPath).fill(job.getRequest(), job);
+            job.finished(result.isSuccess(), result.getMessage());
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            job.finished(false, "Error: " + e.getMessage());
+        }
+        finally {
+            if (fillPermits != null) {
+                fillPermits.release();
+            }
+            activeJobs.remove(job.getRequest().getUsername(), job);
+        }
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        jobs.values().removeIf(job -> job.isExpired(now, ttlMillis));
+    }
+}
@@ -0,0 +1,20 @@
+package service;
+
+/**
+ * Receives progress updates while a fill runs
+ */
+public interface FillProgress {
+    /**
+     * The whole tree has been generated in memory
+     * @param persons Number of persons generated
+     * @param events Number of events generated
+     */
+    void generated(int persons, int events);
+
+    /**
+     * Another batch has been written
+     * @param persons Number of persons written so far
+     * @param events Number of events written so far
+     */
+    void written(int persons, int events);
+}
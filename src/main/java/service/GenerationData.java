@@ -0,0 +1,165 @@
+package service;
+
+import json.DecodeException;
+import json.Decoder;
+import model.Location;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.random.RandomGenerator;
+
+/**
+ * Names and locations used to generate ancestry, read from the json data files once and shared by every fill.
+ * Instances are immutable; a reload swaps in a new instance without disturbing fills using the old one.
+ */
+public class GenerationData {
+    /**
+     * Default directory holding the data files
+     */
+    public static final String DATA_DIR = "json";
+    private static final String[] FILES = {"locations.json", "fnames.json", "mnames.json", "snames.json"};
+
+    private static volatile GenerationData current;
+    /**
+     * Milliseconds between checks of the data files for changes, 0 to never reload
+     */
+    private static volatile long reloadIntervalMillis;
+
+    private final Location[] locations;
+    private final String[] femaleNames;
+    private final String[] maleNames;
+    private final String[] surnames;
+    private final Path dir;
+    /**
+     * Modification times of the data files when they were read, in FILES order
+     */
+    private final long[] modified;
+    private volatile long checkedAt;
+
+    private GenerationData(Path dir, Location[] locations, String[] femaleNames, String[] maleNames,
+                           String[] surnames, long[] modified) {
+        this.dir = dir;
+        this.locations = locations;
+        this.femaleNames = femaleNames;
+        this.maleNames = maleNames;
+        this.surnames = surnames;
+        this.modified = modified;
+        this.checkedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Read and parse the data files in a directory
+     * @param dir Directory holding locations.json, fnames.json, mnames.json and snames.json
+     * @return parsed data
+     * @throws IOException if a file does not exist
+     * @throws DecodeException on failure to decode and parse json
+     */
+    public static GenerationData load(Path dir) throws IOException, DecodeException {
+        long[] modified = modifiedTimes(dir);
+        Decoder jsonDecoder = new Decoder();
+        Location[] locations = jsonDecoder.parseLocations(read(dir, FILES[0]));
+        String[] femaleNames = jsonDecoder.parseNames(read(dir, FILES[1]));
+        String[] maleNames = jsonDecoder.parseNames(read(dir, FILES[2]));
+        String[] surnames = jsonDecoder.parseNames(read(dir, FILES[3]));
+        if (locations == null || locations.length == 0 || femaleNames == null || femaleNames.length == 0
+                || maleNames == null || maleNames.length == 0 || surnames == null || surnames.length == 0) {
+            throw new DecodeException("Generation data files must not be empty");
+        }
+        return new GenerationData(dir, locations, femaleNames, maleNames, surnames, modified);
+    }
+
+    /**
+     * Get the shared data, reading the default data files on first use and re-reading them if they changed
+     * and reloading is on
+     * @return shared data
+     * @throws IOException if a file does not exist on first use
+     * @throws DecodeException on failure to decode and parse json on first use
+     */
+    public static GenerationData get() throws IOException, DecodeException {
+        GenerationData data = current;
+        if (data == null) {
+            synchronized (GenerationData.class) {
+                if (current == null) {
+                    current = load(Paths.get(DATA_DIR));
+                }
+                return current;
+            }
+        }
+        long interval = reloadIntervalMillis;
+        if (interval > 0 && System.currentTimeMillis() - data.checkedAt >= interval) {
+            data.checkedAt = System.currentTimeMillis();
+            reloadIfChanged(data);
+        }
+        return current;
+    }
+
+    /**
+     * Turn reloading of changed data files on or off
+     * @param intervalMillis Milliseconds between checks for changes, 0 to never reload
+     */
+    public static void setReloadInterval(long intervalMillis) {
+        reloadIntervalMillis = intervalMillis;
+    }
+
+    public int getLocationCount() {
+        return locations.length;
+    }
+
+    public int getNameCount() {
+        return femaleNames.length + maleNames.length + surnames.length;
+    }
+
+    public Location randomLocation(RandomGenerator rng) {
+        return locations[rng.nextInt(locations.length)];
+    }
+
+    public String randomFemaleName(RandomGenerator rng) {
+        return femaleNames[rng.nextInt(femaleNames.length)];
+    }
+
+    public String randomMaleName(RandomGenerator rng) {
+        return maleNames[rng.nextInt(maleNames.length)];
+    }
+
+    public String randomSurname(RandomGenerator rng) {
+        return surnames[rng.nextInt(surnames.length)];
+    }
+
+    private static void reloadIfChanged(GenerationData data) {
+        try {
+            long[] modified = modifiedTimes(data.dir);
+            for (int i = 0; i < modified.length; i++) {
+                if (modified[i] != data.modified[i]) {
+                    GenerationData reloaded = load(data.dir);
+                    synchronized (GenerationData.class) {
+                        if (current == data) {
+                            current = reloaded;
+                        }
+                    }
+                    System.out.printf("Reloaded generation data: %d locations, %d names%n",
+                            reloaded.getLocationCount(), reloaded.getNameCount());
+                    return;
+                }
+            }
+        }
+        catch (IOException | DecodeException e) {
+            System.out.printf("Warning: Unable to reload generation data (%s), keeping current data%n",
+                    e.getMessage());
+        }
+    }
+
+    private static long[] modifiedTimes(Path dir) throws IOException {
+        long[] modified = new long[FILES.length];
+        for (int i = 0; i < FILES.length; i++) {
+            modified[i] = Files.getLastModifiedTime(dir.resolve(FILES[i])).toMillis();
+        }
+        return modified;
+    }
+
+    private static String read(Path dir, String file) throws IOException {
+        return Service.parseFileToString(dir + File.separator + file);
+    }
+}
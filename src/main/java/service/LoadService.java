@@ -1,14 +1,20 @@
 package service;
 
 import dao.*;
+import json.DecodeException;
+import json.LoadStreamDecoder;
 import model.Event;
 import model.Person;
 import model.User;
 import request.LoadRequest;
 import result.LoadResult;
 
+import java.io.Reader;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Performs load action
@@ -32,15 +38,120 @@ public class LoadService extends Service {
             return new LoadResult("Error: Missing data in load request", false);
         }
         try {
-            Connection conn = db.open(dbPath);
-            UserDAO userDAO = new UserDAO(conn);
-            PersonDAO personDAO = new PersonDAO(conn);
-            EventDAO eventDAO = new EventDAO(conn);
-            int numUsers = 0;
-            int numPersons = 0;
-            int numEvents = 0;
+            BatchWriter writer = new BatchWriter(db.open(dbPath));
+            writer.insertUsers(Arrays.asList(request.getUsers()));
+            writer.insertPersons(Arrays.asList(request.getPersons()));
+            writer.insertEvents(Arrays.asList(request.getEvents()));
+            db.close(true);
+            // A load replaces every user, so no token cached before it still belongs to its user
+            AuthTokenCache.getInstance().invalidateAll();
+            return writer.result();
+        }
+        catch (DataAccessException e) {
+            return new LoadResult("Error: Unable to access database", false);
+        }
+        finally {
+            if (!db.isClosed()) {
+                db.close(false);
+            }
+            FamilyTreeCache.getInstance().invalidateAll();
+        }
+    }
+
+    /**
+     * Load user, person, and event data streamed from a request body, decoding and inserting it in batches
+     * so that memory use does not grow with the size of the request
+     * @param body Reader over the json request body
+     * @return the result of the load request
+     * @throws DecodeException on invalid json; nothing is loaded
+     */
+    public LoadResult load(Reader body) throws DataAccessException, SQLException, DecodeException {
+        Database db = new Database();
+        try {
+            BatchWriter writer = new BatchWriter(db.open(dbPath));
+            LoadStreamDecoder decoder = new LoadStreamDecoder(body);
+            boolean hasUsers = false;
+            boolean hasPersons = false;
+            boolean hasEvents = false;
+            String section;
+            while ((section = decoder.nextSection()) != null) {
+                switch (section) {
+                    case "users" -> {
+                        hasUsers = true;
+                        for (List<User> batch = decoder.readBatch(User.class, Database.BATCH_SIZE);
+                             !batch.isEmpty(); batch = decoder.readBatch(User.class, Database.BATCH_SIZE)) {
+                            writer.insertUsers(batch);
+                        }
+                    }
+                    case "persons" -> {
+                        hasPersons = true;
+                        for (List<Person> batch = decoder.readBatch(Person.class, Database.BATCH_SIZE);
+                             !batch.isEmpty(); batch = decoder.readBatch(Person.class, Database.BATCH_SIZE)) {
+                            writer.insertPersons(batch);
+                        }
+                    }
+                    case "events" -> {
+                        hasEvents = true;
+                        for (List<Event> batch = decoder.readBatch(Event.class, Database.BATCH_SIZE);
+                             !batch.isEmpty(); batch = decoder.readBatch(Event.class, Database.BATCH_SIZE)) {
+                            writer.insertEvents(batch);
+                        }
+                    }
+                    default -> System.out.printf("Warning: Ignoring unknown load section \"%s\"%n", section);
+                }
+            }
+            if (!hasUsers || !hasPersons || !hasEvents) {
+                db.close(false);
+                return new LoadResult("Error: Missing data in load request", false);
+            }
+            db.close(true);
+            // A load replaces every user, so no token cached before it still belongs to its user
+            AuthTokenCache.getInstance().invalidateAll();
+            return writer.result();
+        }
+        catch (DataAccessException e) {
+            return new LoadResult("Error: Unable to access database", false);
+        }
+        finally {
+            if (!db.isClosed()) {
+                db.close(false);
+            }
+            FamilyTreeCache.getInstance().invalidateAll();
+        }
+    }
+
+    /**
+     * Inserts batches within one transaction, falling back to row by row inserts when a batch fails so that
+     * bad rows are skipped like they always have been
+     */
+    private static class BatchWriter {
+        private final Connection conn;
+        private final UserDAO userDAO;
+        private final PersonDAO personDAO;
+        private final EventDAO eventDAO;
+        private int numUsers;
+        private int numPersons;
+        private int numEvents;
+
+        BatchWriter(Connection conn) {
+            this.conn = conn;
+            userDAO = new UserDAO(conn);
+            personDAO = new PersonDAO(conn);
+            eventDAO = new EventDAO(conn);
+        }
 
-            for (User user : request.getUsers()) {
+        void insertUsers(List<User> users) throws SQLException {
+            Savepoint savepoint = conn.setSavepoint();
+            try {
+                userDAO.insertAll(users);
+                conn.releaseSavepoint(savepoint);
+                numUsers += users.size();
+                return;
+            }
+            catch (DataAccessException e) {
+                conn.rollback(savepoint);
+            }
+            for (User user : users) {
                 try {
                     userDAO.insert(user);
                     numUsers++;
@@ -49,7 +160,20 @@ public class LoadService extends Service {
                     System.out.printf("Warning: Unable to insert user: %s%n", user.getUsername());
                 }
             }
-            for (Person person : request.getPersons()) {
+        }
+
+        void insertPersons(List<Person> persons) throws SQLException {
+            Savepoint savepoint = conn.setSavepoint();
+            try {
+                personDAO.insertAll(persons);
+                conn.releaseSavepoint(savepoint);
+                numPersons += persons.size();
+                return;
+            }
+            catch (DataAccessException e) {
+                conn.rollback(savepoint);
+            }
+            for (Person person : persons) {
                 try {
                     personDAO.insert(person);
                     numPersons++;
@@ -59,7 +183,20 @@ public class LoadService extends Service {
                             person.getFirstName(), person.getLastName());
                 }
             }
-            for (Event event : request.getEvents()) {
+        }
+
+        void insertEvents(List<Event> events) throws SQLException {
+            Savepoint savepoint = conn.setSavepoint();
+            try {
+                eventDAO.insertAll(events);
+                conn.releaseSavepoint(savepoint);
+                numEvents += events.size();
+                return;
+            }
+            catch (DataAccessException e) {
+                conn.rollback(savepoint);
+            }
+            for (Event event : events) {
                 try {
                     eventDAO.insert(event);
                     numEvents++;
@@ -69,15 +206,12 @@ public class LoadService extends Service {
                             event.getEventType(), event.getUsername());
                 }
             }
-            db.close(true);
-            return new LoadResult("Successfully added " + numUsers + " users, " +
-                    numPersons + " persons, and " + numEvents + " events to the database.", true);
         }
-        catch (DataAccessException e) {
-            if (!db.isClosed()) {
-                db.close(false);
-            }
-            return new LoadResult("Error: Unable to access database", false);
+
+        LoadResult result() {
+            return new LoadResult("Successfully added " + numUsers + " users, " +
+                    numPersons + " persons, and " + numEvents + " events to the database.", true,
+                    numUsers, numPersons, numEvents);
         }
     }
 }
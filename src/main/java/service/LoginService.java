@@ -9,6 +9,7 @@ import model.User;
 import request.LoginRequest;
 import result.LoginResult;
 
+import java.sql.SQLException;
 import java.util.UUID;
 
 /**
@@ -27,27 +28,39 @@ public class LoginService extends Service {
      */
     public LoginResult login(LoginRequest request) throws DataAccessException {
         Database db = new Database();
-        UserDAO userDAO = new UserDAO(db.open(dbPath));
-        AuthTokenDAO authTokenDAO = new AuthTokenDAO(db.getConnection());
-        AuthToken newAuthToken;
-        User foundUser;
         try {
-            foundUser = userDAO.getUserByUsername(request.getUsername());
-        }
-        catch (DataAccessException e) {
-            foundUser = null;
+            UserDAO userDAO = new UserDAO(db.open(dbPath));
+            AuthTokenDAO authTokenDAO = new AuthTokenDAO(db.getConnection());
+            AuthToken newAuthToken;
+            User foundUser;
+            try {
+                foundUser = userDAO.getUserByUsername(request.getUsername());
+            }
+            catch (DataAccessException e) {
+                foundUser = null;
+            }
+            if (foundUser == null || !foundUser.getPassword().equals(request.getPassword())) {
+                db.close(false);
+                return new LoginResult(null, null, null,
+                        "Error: Unable to validate user", false);
+            }
+            String newToken = UUID.randomUUID().toString();
+            newAuthToken = new AuthToken(newToken, request.getUsername());
+            authTokenDAO.insert(newAuthToken);
+            db.close(true);
+
+            return new LoginResult(newToken, foundUser.getUsername(),
+                    foundUser.getPersonID(), null, true);
         }
-        if (foundUser == null || !foundUser.getPassword().equals(request.getPassword())) {
-            db.close(false);
-            return new LoginResult(null, null, null,
-                    "Error: Unable to validate user", false);
+        finally {
+            try {
+                if (!db.isClosed()) {
+                    db.close(false);
+                }
+            }
+            catch (SQLException e) {
+                e.printStackTrace();
+            }
         }
-        String newToken = UUID.randomUUID().toString();
-        newAuthToken = new AuthToken(newToken, request.getUsername());
-        authTokenDAO.insert(newAuthToken);
-        db.close(true);
-
-        return new LoginResult(newToken, foundUser.getUsername(),
-                foundUser.getPersonID(), null, true);
     }
 }
@@ -27,7 +27,7 @@ public class PersonIDService extends Service {
     public PersonIDResult personID(String token, String personID) throws DataAccessException {
         Database db = new Database();
         try {
-            AuthTokenDAO authTokenDAO = new AuthTokenDAO(db.open(dbPath));
+            AuthTokenDAO authTokenDAO = new AuthTokenDAO(db.openReadOnly(dbPath));
             String username = authTokenDAO.validate(token);
             if (username == null) {
                 return new PersonIDResult("Error: Unable to authenticate user", false);
@@ -44,7 +44,7 @@ public class PersonIDService extends Service {
                     person.getSpouseID(), null, true);
         }
         catch (DataAccessException e) {
-            return new PersonIDResult("Error: Unable to authenticate user", false);
+            return new PersonIDResult("Error: " + e.getMessage(), false);
         }
         finally {
             db.close(false);
@@ -3,10 +3,15 @@ package service;
 import dao.AuthTokenDAO;
 import dao.DataAccessException;
 import dao.Database;
+import dao.FamilyTreeCache;
 import dao.PersonDAO;
+import json.ResultStreamWriter;
 import model.Person;
+import request.PageRequest;
 import result.PersonResult;
 
+import java.io.IOException;
+
 /**
  * Performs person action
  */
@@ -26,21 +31,120 @@ public class PersonService extends Service {
     public PersonResult person(String token) throws DataAccessException {
         Database db = new Database();
         try {
-            AuthTokenDAO authTokenDAO = new AuthTokenDAO(db.open(dbPath));
+            AuthTokenDAO authTokenDAO = new AuthTokenDAO(db.openReadOnly(dbPath));
             String username = authTokenDAO.validate(token);
             if (username == null) {
                 return new PersonResult(null, "Error: Unable to authenticate user", false);
             }
 
-            PersonDAO personDAO = new PersonDAO(db.getConnection());
-            Person[] persons = personDAO.getAllPersonsByUsername(username);
+            FamilyTreeCache cache = FamilyTreeCache.getInstance();
+            Person[] persons = cache.getPersons(dbPath, username);
             if (persons == null) {
+                long version = cache.version(dbPath, username);
+                PersonDAO personDAO = new PersonDAO(db.getConnection());
+                persons = personDAO.getAllPersonsByUsername(username);
+                cache.putPersons(dbPath, username, version, persons == null ? new Person[0] : persons);
+            }
+            if (persons == null || persons.length == 0) {
                 return new PersonResult(null, "Error: Unable to find persons", false);
             }
             return new PersonResult(persons, null, true);
         }
         catch (DataAccessException e) {
-            return new PersonResult(null, "Error: Unable to authenticate user", false);
+            return new PersonResult(null, "Error: " + e.getMessage(), false);
+        }
+        finally {
+            db.close(false);
+        }
+    }
+
+    /**
+     * Write all persons associated with current user straight to a response as they are read
+     * @param token Authentication token for current user
+     * @param out Writer that opens the response when the first person is written
+     * @return an error result if nothing was written, otherwise a success result without data
+     * @throws IOException on failure to write to the response
+     */
+    public PersonResult streamPersons(String token, ResultStreamWriter<Person> out) throws DataAccessException, IOException {
+        Database db = new Database();
+        try {
+            AuthTokenDAO authTokenDAO = new AuthTokenDAO(db.openReadOnly(dbPath));
+            String username = authTokenDAO.validate(token);
+            if (username == null) {
+                return new PersonResult(null, "Error: Unable to authenticate user", false);
+            }
+
+            FamilyTreeCache cache = FamilyTreeCache.getInstance();
+            Person[] persons = cache.getPersons(dbPath, username);
+            int count;
+            if (persons == null) {
+                // Write each row as it is read, keeping it for the cache while the tree could fit
+                long version = cache.version(dbPath, username);
+                FamilyTreeCache.Collector<Person> read = cache.collectPersons();
+                PersonDAO personDAO = new PersonDAO(db.getConnection());
+                personDAO.forEachPersonByUsername(username, row -> {
+                    read.add(row);
+                    out.write(row);
+                });
+                if (read.isComplete()) {
+                    cache.putPersons(dbPath, username, version, read.toArray(new Person[0]));
+                }
+                count = read.size();
+            }
+            else {
+                for (Person row : persons) {
+                    out.write(row);
+                }
+                count = persons.length;
+            }
+            if (count == 0) {
+                return new PersonResult(null, "Error: Unable to find persons", false);
+            }
+            out.finish();
+            return new PersonResult(null, null, true);
+        }
+        catch (DataAccessException e) {
+            if (out.isStarted()) {
+                // Headers are already sent, so the response can only be cut short
+                throw new IOException(e.getMessage());
+            }
+            return new PersonResult(null, "Error: " + e.getMessage(), false);
+        }
+        finally {
+            db.close(false);
+        }
+    }
+
+    /**
+     * Write one page of the persons associated with current user straight to a response as they are read.
+     * Pages are read from the database so filters and limits apply in SQL; the cache holds only whole trees.
+     * @param token Authentication token for current user
+     * @param page Page to read, with its filters
+     * @param out Writer that opens the response when the first person is written
+     * @return an error result if nothing was written, otherwise a success result without data
+     * @throws IOException on failure to write to the response
+     */
+    public PersonResult streamPersonPage(String token, PageRequest page, ResultStreamWriter<Person> out)
+            throws DataAccessException, IOException {
+        Database db = new Database();
+        try {
+            AuthTokenDAO authTokenDAO = new AuthTokenDAO(db.openReadOnly(dbPath));
+            String username = authTokenDAO.validate(token);
+            if (username == null) {
+                return new PersonResult(null, "Error: Unable to authenticate user", false);
+            }
+
+            PersonDAO personDAO = new PersonDAO(db.getConnection());
+            String nextCursor = personDAO.forEachPersonPage(username, page, out::write);
+            out.finish(nextCursor);
+            return new PersonResult(null, null, true);
+        }
+        catch (DataAccessException e) {
+            if (out.isStarted()) {
+                // Headers are already sent, so the response can only be cut short
+                throw new IOException(e.getMessage());
+            }
+            return new PersonResult(null, "Error: " + e.getMessage(), false);
         }
         finally {
             db.close(false);
@@ -8,7 +8,6 @@ import result.RegisterResult;
 
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.UUID;
 
 /**
  * Performs register action
@@ -30,7 +29,7 @@ public class RegisterService extends Service {
      */
     public RegisterResult register(RegisterRequest request) throws DataAccessException, SQLException {
         String token = generateAuthToken();
-        String personID = UUID.randomUUID().toString();
+        String personID = IdGenerator.next();
         Database db = new Database();
         try {
             Connection conn = db.open(dbPath);
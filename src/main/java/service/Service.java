@@ -1,5 +1,8 @@
 package service;
 
+import dao.AuthTokenDAO;
+import dao.DataAccessException;
+import dao.Database;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -24,6 +27,21 @@ public class Service {
         this.dbPath = dbPath;
     }
 
+    /**
+     * Look up the user an auth token belongs to
+     * @param token Authentication token
+     * @return username, or null if the token is not valid
+     */
+    public String authenticate(String token) throws DataAccessException {
+        Database db = new Database();
+        try {
+            return new AuthTokenDAO(db.openReadOnly(dbPath)).validate(token);
+        }
+        finally {
+            db.close(false);
+        }
+    }
+
     protected static String generateAuthToken() {
         byte[] randomBytes = new byte[24];
         secureRandom.nextBytes(randomBytes);
@@ -0,0 +1,74 @@
+package service;
+
+import dao.AuthTokenDAO;
+import dao.DataAccessException;
+import dao.Database;
+import dao.EventDAO;
+import dao.PersonDAO;
+import dao.SyncDAO;
+import json.SyncStreamWriter;
+import result.SyncResult;
+
+import java.io.IOException;
+
+/**
+ * Performs sync action
+ */
+public class SyncService extends Service {
+    /**
+     * Create new SyncService object
+     */
+    public SyncService(String dbPath) {
+        super(dbPath);
+    }
+
+    /**
+     * Write the persons and events changed and deleted since a revision straight to a response as they are
+     * read. A client that has never synced, or whose revision is no longer covered by tombstones, is sent the
+     * whole tree with reset set. Everything is read in one transaction, so the revision sent matches the rows.
+     * @param token Authentication token for current user
+     * @param since Revision the client last synced, 0 if never
+     * @param out Writer that opens the response when the sync starts
+     * @return an error result if nothing was written, otherwise a success result without data
+     * @throws IOException on failure to write to the response
+     */
+    public SyncResult sync(String token, long since, SyncStreamWriter out) throws DataAccessException, IOException {
+        Database db = new Database();
+        try {
+            AuthTokenDAO authTokenDAO = new AuthTokenDAO(db.openReadOnly(dbPath));
+            String username = authTokenDAO.validate(token);
+            if (username == null) {
+                return new SyncResult("Error: Unable to authenticate user", false);
+            }
+
+            SyncDAO syncDAO = new SyncDAO(db.getConnection());
+            long revision = syncDAO.getRevision(username);
+            boolean reset = since <= 0 || since < syncDAO.getFloor(username) || since > revision;
+            long from = reset ? -1 : since;
+
+            out.start(revision, reset);
+            out.section("persons");
+            new PersonDAO(db.getConnection()).forEachPersonSince(username, from, out::writePerson);
+            out.section("events");
+            new EventDAO(db.getConnection()).forEachEventSince(username, from, out::writeEvent);
+            if (!reset) {
+                out.section("deletedPersons");
+                syncDAO.forEachTombstoneSince(username, since, SyncDAO.PERSON, out::writeID);
+                out.section("deletedEvents");
+                syncDAO.forEachTombstoneSince(username, since, SyncDAO.EVENT, out::writeID);
+            }
+            out.finish();
+            return new SyncResult(revision, reset, null, null, null, null);
+        }
+        catch (DataAccessException e) {
+            if (out.isStarted()) {
+                // Headers are already sent, so the response can only be cut short
+                throw new IOException(e.getMessage());
+            }
+            return new SyncResult("Error: " + e.getMessage(), false);
+        }
+        finally {
+            db.close(false);
+        }
+    }
+}
@@ -3,8 +3,15 @@ import model.Event;
 import model.Person;
 import model.User;
 import org.junit.jupiter.api.*;
+import request.PageRequest;
+import request.RequestException;
 
 import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import dao.*;
 
@@ -16,6 +23,7 @@ public class DAOTest {
     // Create db file and open connection
     @BeforeAll
     public static void setUp() throws DataAccessException {
+        new SchemaMigrator(TEST_DB_PATH).migrate();
         db = new Database();
         db.open(TEST_DB_PATH);
     }
@@ -37,6 +45,16 @@ public class DAOTest {
         db.close(true);
     }
 
+    @Test
+    @DisplayName("Migrations are applied once")
+    public void testMigrateIsIdempotent() throws DataAccessException {
+        SchemaMigrator migrator = new SchemaMigrator(TEST_DB_PATH);
+        int version = migrator.migrate();
+
+        Assertions.assertTrue(version >= 3);
+        Assertions.assertEquals(version, migrator.migrate());
+    }
+
     @Test
     @DisplayName("Insert valid user")
     public void testInsertValidUser() {
@@ -154,6 +172,23 @@ public class DAOTest {
         db.open(TEST_DB_PATH);
     }
 
+    @Test
+    @DisplayName("Lookups treat quotes as data")
+    public void testQuotedLookups() throws DataAccessException {
+        fill(db);
+        PersonDAO personDAO = new PersonDAO(db.open(TEST_DB_PATH));
+        Assertions.assertNull(personDAO.getPersonByID("' or '1'='1"));
+        Assertions.assertEquals("ar5j92", personDAO.getPersonByID("ar5j92").getPersonID());
+        Assertions.assertEquals("ar5j92", personDAO.getPersonByID("ar5j92").getPersonID());
+
+        AuthTokenDAO authTokenDAO = new AuthTokenDAO(db.getConnection());
+        Assertions.assertNull(authTokenDAO.validate("x' or '1'='1"));
+
+        db.clearTables();
+        db.close(true);
+        db.open(TEST_DB_PATH);
+    }
+
     @Test
     @DisplayName("Get all persons associated with username")
     public void testGetAllPersonsByUsername() throws DataAccessException {
@@ -199,6 +234,25 @@ public class DAOTest {
         db.open(TEST_DB_PATH);
     }
 
+    @Test
+    @DisplayName("Reuse pooled connection")
+    public void testPooledConnectionReused() throws DataAccessException, SQLException {
+        ConnectionPool pool = ConnectionPool.get(TEST_DB_PATH, ConnectionPool.Mode.READ_ONLY);
+        Database readDb = new Database();
+        Connection first = readDb.openReadOnly(TEST_DB_PATH);
+        readDb.close(false);
+        PoolStats released = pool.getStats();
+        readDb.openReadOnly(TEST_DB_PATH);
+        PoolStats stats = pool.getStats();
+        readDb.close(false);
+
+        Assertions.assertEquals(released.getIdle(), stats.getActive() + stats.getIdle());
+        Assertions.assertEquals(1, stats.getActive());
+        Assertions.assertTrue(stats.getCheckouts() >= 2);
+        Assertions.assertTrue(first.isClosed());
+        Assertions.assertThrows(SQLException.class, first::createStatement);
+    }
+
     @Test
     @DisplayName("Delete persons by username")
     public void testDeletePersonsByUsername() throws DataAccessException {
@@ -220,6 +274,56 @@ public class DAOTest {
         db.open(TEST_DB_PATH);
     }
 
+    @Test
+    @DisplayName("Delete tree without foreign keys")
+    public void testDeleteTreeByUsername() throws DataAccessException {
+        fill(db);
+        PersonDAO personDAO = new PersonDAO(db.open(TEST_DB_PATH));
+        personDAO.deleteTreeByUsername("jim_halpert");
+        db.close(true);
+
+        personDAO.setConnection(db.open(TEST_DB_PATH));
+        EventDAO eventDAO = new EventDAO(db.getConnection());
+        Assertions.assertNull(personDAO.getPersonByID("ar5j92"));
+        Assertions.assertNull(eventDAO.getEventByID("wr8m89"));
+        Assertions.assertNotNull(personDAO.getPersonByID("mn2c89"));
+        Assertions.assertNotNull(eventDAO.getEventByID("jm1q90"));
+
+        db.clearTables();
+        db.close(true);
+        db.open(TEST_DB_PATH);
+    }
+
+    @Test
+    @DisplayName("Sync sees writes and deletes after a revision")
+    public void testSyncSince() throws DataAccessException, IOException {
+        fill(db);
+        SyncDAO syncDAO = new SyncDAO(db.openWithForeignKey(TEST_DB_PATH));
+        long before = syncDAO.getRevision("jim_halpert");
+        PersonDAO personDAO = new PersonDAO(db.getConnection());
+        personDAO.deletePersonsByUsername("jim_halpert");
+        personDAO.insert(new Person("zz1a11", "jim_halpert", "New", "Person", "f", null, null, null));
+        db.close(true);
+
+        syncDAO.setConnection(db.open(TEST_DB_PATH));
+        personDAO.setConnection(db.getConnection());
+        List<String> changed = new ArrayList<>();
+        List<String> deletedPersons = new ArrayList<>();
+        List<String> deletedEvents = new ArrayList<>();
+        personDAO.forEachPersonSince("jim_halpert", before, row -> changed.add(row.getPersonID()));
+        syncDAO.forEachTombstoneSince("jim_halpert", before, SyncDAO.PERSON, deletedPersons::add);
+        syncDAO.forEachTombstoneSince("jim_halpert", before, SyncDAO.EVENT, deletedEvents::add);
+
+        Assertions.assertEquals(List.of("zz1a11"), changed);
+        Assertions.assertEquals(List.of("ar5j92"), deletedPersons);
+        Assertions.assertEquals(List.of("wr8m89"), deletedEvents);
+        Assertions.assertTrue(syncDAO.getRevision("jim_halpert") > before);
+
+        db.clearTables();
+        db.close(true);
+        db.open(TEST_DB_PATH);
+    }
+
     @Test
     @DisplayName("Insert valid person")
     public void testInsertValidPerson() {
@@ -373,6 +477,33 @@ public class DAOTest {
         db.open(TEST_DB_PATH);
     }
 
+    @Test
+    @DisplayName("Page through filtered events")
+    public void testEventPages() throws DataAccessException, IOException, RequestException {
+        EventDAO eventDAO = new EventDAO(db.getConnection());
+        eventDAO.insert(new Event("e3", "michael_scott", "p1", 34f, 35f, "USA", "Provo", "death", 2001));
+        eventDAO.insert(new Event("e1", "michael_scott", "p1", 34f, 35f, "USA", "Provo", "birth", 1950));
+        eventDAO.insert(new Event("e2", "michael_scott", "p2", 34f, 35f, "USA", "Provo", "birth", 1950));
+        eventDAO.insert(new Event("e4", "michael_scott", "p2", 34f, 35f, "USA", "Provo", "birth", 1990));
+        db.close(true);
+
+        eventDAO.setConnection(db.open(TEST_DB_PATH));
+        PageRequest page = PageRequest.forEvents("limit=2&eventType=birth&yearFrom=1900");
+        List<Event> found = new ArrayList<>();
+        String cursor = eventDAO.forEachEventPage("michael_scott", page, found::add);
+        Assertions.assertEquals(List.of("e1", "e2"), found.stream().map(Event::getEventID).toList());
+        Assertions.assertNotNull(cursor);
+
+        page.setCursor(cursor);
+        found.clear();
+        Assertions.assertNull(eventDAO.forEachEventPage("michael_scott", page, found::add));
+        Assertions.assertEquals(List.of("e4"), found.stream().map(Event::getEventID).toList());
+
+        db.clearTables();
+        db.close(true);
+        db.open(TEST_DB_PATH);
+    }
+
     @Test
     @DisplayName("Get all events from invalid username")
     public void testGetEventsInvalidUsername() throws DataAccessException {
@@ -411,6 +542,70 @@ public class DAOTest {
         Assertions.assertTrue(success);
     }
 
+    @Test
+    @DisplayName("Validate cached AuthToken")
+    public void testValidateCachedAuthToken() throws DataAccessException {
+        AuthTokenDAO authTokenDAO = new AuthTokenDAO(db.getConnection());
+        authTokenDAO.insert(new AuthToken("cached-token", "jimboy_banana"));
+        Assertions.assertEquals("jimboy_banana", authTokenDAO.validate("cached-token"));
+
+        long hits = AuthTokenCache.getInstance().getHits();
+        Assertions.assertEquals("jimboy_banana", authTokenDAO.validate("cached-token"));
+        Assertions.assertEquals(hits + 1, AuthTokenCache.getInstance().getHits());
+
+        authTokenDAO.deleteAuthTokens();
+        db.close(true);
+        AuthTokenCache.getInstance().invalidateAll();
+
+        authTokenDAO.setConnection(db.open(TEST_DB_PATH));
+        Assertions.assertNull(authTokenDAO.validate("cached-token"));
+    }
+
+    @Test
+    @DisplayName("Family tree cache skips reads that raced a write")
+    public void testFamilyTreeCacheVersion() {
+        FamilyTreeCache cache = FamilyTreeCache.getInstance();
+        Person[] persons = {new Person("cached-person", "cache_user", "Jim", "Halpert", "m", null, null, null)};
+
+        long version = cache.version(TEST_DB_PATH, "cache_user");
+        cache.invalidate(TEST_DB_PATH, "cache_user");
+        cache.putPersons(TEST_DB_PATH, "cache_user", version, persons);
+        Assertions.assertNull(cache.getPersons(TEST_DB_PATH, "cache_user"));
+
+        version = cache.version(TEST_DB_PATH, "cache_user");
+        cache.putPersons(TEST_DB_PATH, "cache_user", version, persons);
+        Assertions.assertSame(persons, cache.getPersons(TEST_DB_PATH, "cache_user"));
+        Assertions.assertNull(cache.getEvents(TEST_DB_PATH, "cache_user"));
+
+        cache.invalidateAll();
+        Assertions.assertNull(cache.getPersons(TEST_DB_PATH, "cache_user"));
+    }
+
+    @Test
+    @DisplayName("Family tree cache keeps streamed rows only while they fit")
+    public void testFamilyTreeCacheCollector() {
+        FamilyTreeCache cache = FamilyTreeCache.getInstance();
+        Person person = new Person("cached-person", "cache_user", "Jim", "Halpert", "m", null, null, null);
+
+        FamilyTreeCache.Collector<Person> read = cache.collectPersons();
+        read.add(person);
+        Assertions.assertTrue(read.isComplete());
+        Assertions.assertEquals(1, read.toArray(new Person[0]).length);
+
+        cache.configure(0);
+        try {
+            read = cache.collectPersons();
+            read.add(person);
+            read.add(person);
+            Assertions.assertFalse(read.isComplete());
+            Assertions.assertNull(read.toArray(new Person[0]));
+            Assertions.assertEquals(2, read.size());
+        }
+        finally {
+            cache.configure(64L * 1024 * 1024);
+        }
+    }
+
     @Test
     @DisplayName("Clear tables")
     public void testClearTables() throws DataAccessException {
@@ -0,0 +1,61 @@
+import handler.AssetCache;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class HandlerTest {
+    @TempDir
+    Path tempDir;
+
+    private Path webRoot;
+
+    // Create a web directory with a private file beside it
+    @BeforeEach
+    public void setUp() throws IOException {
+        webRoot = Files.createDirectories(tempDir.resolve("web"));
+        Files.createDirectories(webRoot.resolve("css"));
+        Files.writeString(webRoot.resolve("index.html"), "<html></html>");
+        Files.writeString(webRoot.resolve("css").resolve("main.css"), "body {}");
+        Files.createDirectories(tempDir.resolve("sql"));
+        Files.writeString(tempDir.resolve("sql").resolve("prod-db.db"), "secret");
+    }
+
+    @Test
+    @DisplayName("Web files stay inside the web directory")
+    public void testAssetCacheRejectsTraversal() throws IOException {
+        AssetCache assets = new AssetCache(webRoot);
+
+        Assertions.assertNull(assets.get("/../sql/prod-db.db"));
+        Assertions.assertNull(assets.get("/css/../../sql/prod-db.db"));
+        Assertions.assertNull(assets.get("/"));
+        Assertions.assertNull(assets.get("/missing.html"));
+        Assertions.assertNotNull(assets.get("/css/../index.html"));
+    }
+
+    @Test
+    @DisplayName("Web files have content types by extension")
+    public void testAssetCacheContentTypes() throws IOException {
+        AssetCache assets = new AssetCache(webRoot);
+
+        Assertions.assertEquals("text/html; charset=utf-8", assets.get("/index.html").getContentType());
+        Assertions.assertEquals("text/css; charset=utf-8", assets.get("/css/main.css").getContentType());
+    }
+
+    @Test
+    @DisplayName("Changed web files are read again")
+    public void testAssetCacheRefresh() throws IOException {
+        AssetCache assets = new AssetCache(webRoot, 1024, 0);
+        AssetCache.Asset before = assets.get("/css/main.css");
+
+        Files.writeString(webRoot.resolve("css").resolve("main.css"), "body { color: red; }");
+        AssetCache.Asset after = assets.get("/css/main.css");
+
+        Assertions.assertEquals("body {}", new String(before.getBytes(), StandardCharsets.UTF_8));
+        Assertions.assertEquals("body { color: red; }", new String(after.getBytes(), StandardCharsets.UTF_8));
+        Assertions.assertNotEquals(before.getETag(), after.getETag());
+    }
+}
@@ -1,11 +1,23 @@
-import json.DecodeException;
-import json.Decoder;
+import com.google.gson.Gson;
+import json.*;
+import model.Event;
 import model.Location;
+import model.Person;
+import model.User;
 import org.junit.jupiter.api.*;
+import request.LoginRequest;
+import request.PageRequest;
+import request.RequestException;
+import result.EventResult;
+import result.PersonResult;
 import service.Service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 public class JSONTest {
     @Test
@@ -31,4 +43,104 @@ public class JSONTest {
         Assertions.assertEquals(147, fnames.length);
     }
 
+    @Test
+    @DisplayName("Streaming load sections in batches")
+    public void testLoadStreamDecoder() throws DecodeException {
+        String body = "{\"users\": [{\"username\": \"a\"}, {\"username\": \"b\"}, null, {\"username\": \"c\"}]," +
+                "\"note\": \"ignored\", \"persons\": [{\"personID\": \"p1\"}], \"events\": []}";
+        LoadStreamDecoder decoder = new LoadStreamDecoder(new StringReader(body));
+
+        Assertions.assertEquals("users", decoder.nextSection());
+        List<User> first = decoder.readBatch(User.class, 2);
+        List<User> second = decoder.readBatch(User.class, 2);
+        Assertions.assertEquals(2, first.size());
+        Assertions.assertEquals("c", second.get(0).getUsername());
+        Assertions.assertTrue(decoder.readBatch(User.class, 2).isEmpty());
+
+        Assertions.assertEquals("persons", decoder.nextSection());
+        Assertions.assertEquals("p1", decoder.readBatch(Person.class, 10).get(0).getPersonID());
+        Assertions.assertEquals("events", decoder.nextSection());
+        Assertions.assertNull(decoder.nextSection());
+    }
+
+    @Test
+    @DisplayName("Decoding login from a reader")
+    public void testDecodeLoginReader() throws DecodeException {
+        Decoder jsonDecoder = new Decoder();
+        LoginRequest request = jsonDecoder.decodeLogin(new StringReader(
+                "{\"username\": \"sheila\", \"password\": \"parker\"}"));
+
+        Assertions.assertEquals("sheila", request.getUsername());
+        Assertions.assertEquals("parker", request.getPassword());
+        Assertions.assertThrows(DecodeException.class,
+                () -> jsonDecoder.decodeLogin(new StringReader("{\"username\": ")));
+    }
+
+    @Test
+    @DisplayName("Streamed event result matches encoded result")
+    public void testResultStreamWriter() throws IOException, EncodeException {
+        Event[] events = {
+                new Event("e1", "sheila", "p1", 38.89037f, -77.00912f, "USA", "Washington", "birth", 1970),
+                new Event("e2", "sheila", "p1", -12.5f, 100f, "Peru", null, "death", 2040)
+        };
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ResultStreamWriter<Event> writer = ResultStreamWriter.forEvents(() -> body);
+        Assertions.assertFalse(writer.isStarted());
+        for (Event event : events) {
+            writer.write(event);
+        }
+        writer.finish();
+
+        String expected = new Encoder().encodeEvent(new EventResult(events, null, true));
+        Assertions.assertEquals(expected, body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Streamed page writes only requested fields")
+    public void testResultStreamWriterFields() throws IOException, RequestException {
+        PageRequest page = PageRequest.forEvents("fields=eventID,year&limit=1");
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ResultStreamWriter<Event> writer = ResultStreamWriter.forEvents(() -> body, page.getFields());
+        writer.write(new Event("e1", "sheila", "p1", 38.89037f, -77.00912f, "USA", "Washington", "birth", 1970));
+        writer.finish("next");
+
+        Assertions.assertEquals("{\"data\":[{\"eventID\":\"e1\",\"year\":1970}],\"nextCursor\":\"next\"," +
+                "\"success\":true}", body.toString(StandardCharsets.UTF_8));
+        Assertions.assertThrows(RequestException.class, () -> PageRequest.forEvents("fields=firstName"));
+        Assertions.assertThrows(RequestException.class, () -> PageRequest.forPersons("eventType=birth"));
+    }
+
+    @Test
+    @DisplayName("Event cursors are checked when the request is parsed")
+    public void testEventCursor() throws RequestException {
+        String cursor = PageRequest.encodeEventCursor(1950, "e2:x");
+        PageRequest page = PageRequest.forEvents("cursor=" + cursor);
+
+        Assertions.assertEquals(1950, page.getAfterYear());
+        Assertions.assertEquals("e2:x", page.getAfterEventID());
+        String noYear = PageRequest.encodeCursor("e2");
+        String badYear = PageRequest.encodeCursor("later:e2");
+        Assertions.assertThrows(RequestException.class, () -> PageRequest.forEvents("cursor=" + noYear));
+        Assertions.assertThrows(RequestException.class, () -> PageRequest.forEvents("cursor=" + badYear));
+        Assertions.assertEquals("e2", PageRequest.forPersons("cursor=" + noYear).getAfter());
+    }
+
+    @Test
+    @DisplayName("Shared codec matches reflective Gson")
+    public void testCodecMatchesReflection() {
+        Gson reflective = new Gson();
+        EventResult events = new EventResult(new Event[] {
+                new Event("e1", "sheila", "p1", 38.89037f, -77.00912f, "USA", "Washington", "birth", 1970),
+                new Event("e2", "sheila", "p1", -12.5f, 100f, "Peru", "Lima", "death", 2040)
+        }, null, true);
+        PersonResult persons = new PersonResult(null, "Error: Unable to find persons", false);
+
+        String eventsJson = Codec.gson().toJson(events);
+        Assertions.assertEquals(reflective.toJson(events), eventsJson);
+        Assertions.assertEquals(reflective.toJson(persons), Codec.gson().toJson(persons));
+
+        EventResult decoded = Codec.gson().fromJson(eventsJson, EventResult.class);
+        Assertions.assertArrayEquals(events.getData(), decoded.getData());
+        Assertions.assertNull(Codec.gson().fromJson(Codec.gson().toJson(persons), PersonResult.class).getData());
+    }
 }
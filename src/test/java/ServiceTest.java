@@ -1,4 +1,5 @@
 import dao.*;
+import json.DecodeException;
 import model.Event;
 import model.Person;
 import model.User;
@@ -8,9 +9,11 @@ import result.*;
 import service.*;
 
 import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.Random;
 import java.util.UUID;
 
 public class ServiceTest {
@@ -19,7 +22,8 @@ public class ServiceTest {
 
     // Create db file and open connection
     @BeforeAll
-    public static void setUp() {
+    public static void setUp() throws DataAccessException {
+        new SchemaMigrator(TEST_DB_PATH).migrate();
         db = new Database();
     }
 
@@ -138,6 +142,11 @@ public class ServiceTest {
                 eventMap.get(event.getPersonID()).put(event.getEventType(), event);
             }
 
+            HashMap<String, Person> personMap = new HashMap<>();
+            for (Person person : familyTree) {
+                personMap.put(person.getPersonID(), person);
+            }
+
             for (Person person : familyTree) {
                 HashMap<String, Event> personEvents = eventMap.get(person.getPersonID());
                 Event birth = personEvents.get("birth");
@@ -158,10 +167,10 @@ public class ServiceTest {
                     Event marriage = personEvents.get("marriage");
                     Assertions.assertTrue(marriage.getYear() - birth.getYear() >= 18);
                 }
-                Person mother = personDAO.getPersonByID(person.getMotherID());
+                Person mother = personMap.get(person.getMotherID());
                 if (mother != null) {
                     Event motherBirth = eventMap.get(mother.getPersonID()).get("birth");
-                    Assertions.assertTrue(motherBirth.getYear() - birth.getYear() > 18);
+                    Assertions.assertTrue(birth.getYear() - motherBirth.getYear() > 18);
                 }
             }
         }
@@ -215,6 +224,11 @@ public class ServiceTest {
                 eventMap.get(event.getPersonID()).put(event.getEventType(), event);
             }
 
+            HashMap<String, Person> personMap = new HashMap<>();
+            for (Person person : familyTree) {
+                personMap.put(person.getPersonID(), person);
+            }
+
             for (Person person : familyTree) {
                 HashMap<String, Event> personEvents = eventMap.get(person.getPersonID());
                 Event birth = personEvents.get("birth");
@@ -235,10 +249,10 @@ public class ServiceTest {
                     Event marriage = personEvents.get("marriage");
                     Assertions.assertTrue(marriage.getYear() - birth.getYear() >= 18);
                 }
-                Person mother = personDAO.getPersonByID(person.getMotherID());
+                Person mother = personMap.get(person.getMotherID());
                 if (mother != null) {
                     Event motherBirth = eventMap.get(mother.getPersonID()).get("birth");
-                    Assertions.assertTrue(motherBirth.getYear() - birth.getYear() > 18);
+                    Assertions.assertTrue(birth.getYear() - motherBirth.getYear() > 18);
                 }
             }
         }
@@ -250,6 +264,44 @@ public class ServiceTest {
         }
     }
 
+    @Test
+    @DisplayName("Fill seven generations in parallel")
+    public void testFillSevenGenerations() throws RequestException, DataAccessException, SQLException {
+        Connection conn = db.open(TEST_DB_PATH);
+        UserDAO userDAO = new UserDAO(conn);
+        userDAO.insert(new User("jiminy-grasshopper", "password", "grasshopper@test.com",
+                "Jiminy", "Grasshopper", "m", UUID.randomUUID().toString()));
+        db.close(true);
+
+        FillRequest fillRequest = new FillRequest("jiminy-grasshopper", 7);
+        FillService fillService = new FillService(TEST_DB_PATH);
+        Assertions.assertTrue(fillService.fill(fillRequest).isSuccess());
+
+        conn = db.openReadOnly(TEST_DB_PATH);
+        Person[] familyTree = new PersonDAO(conn).getAllPersonsByUsername("jiminy-grasshopper");
+        Event[] familyEvents = new EventDAO(conn).getAllEventsByUsername("jiminy-grasshopper");
+        db.close(false);
+
+        Assertions.assertEquals(255, familyTree.length);
+        Assertions.assertEquals(763, familyEvents.length);
+        HashMap<String, Person> personMap = new HashMap<>();
+        for (Person person : familyTree) {
+            personMap.put(person.getPersonID(), person);
+        }
+        Assertions.assertEquals(255, personMap.size());
+        int withParents = 0;
+        for (Person person : familyTree) {
+            if (person.getFatherID() != null) {
+                Assertions.assertNotNull(personMap.get(person.getFatherID()));
+            }
+            if (person.getMotherID() != null) {
+                Assertions.assertNotNull(personMap.get(person.getMotherID()));
+                withParents++;
+            }
+        }
+        Assertions.assertEquals(127, withParents);
+    }
+
     @Test
     @DisplayName("Fill invalid generations")
     public void testFillInvalidGenerations() throws DataAccessException {
@@ -266,6 +318,20 @@ public class ServiceTest {
         });
     }
 
+    @Test
+    @DisplayName("Fill unknown user")
+    public void testFillUnknownUser() throws RequestException, DataAccessException, SQLException {
+        FillRequest request = new FillRequest("nobody-cricket", 4);
+        FillService service = new FillService(TEST_DB_PATH);
+        FillResult result = service.fill(request);
+
+        Assertions.assertFalse(result.isSuccess());
+        Assertions.assertEquals("Error: User not found", result.getMessage());
+        Assertions.assertThrows(RequestException.class, () -> {
+            service.validate(request);
+        });
+    }
+
     @Test
     @DisplayName("Clear database")
     public void testClearDatabase() throws DataAccessException {
@@ -519,4 +585,26 @@ public class ServiceTest {
             }
         }
     }
+
+    @Test
+    @DisplayName("Generation data is loaded once")
+    public void testGenerationData() throws IOException, DecodeException {
+        GenerationData data = GenerationData.get();
+
+        Assertions.assertSame(data, GenerationData.get());
+        Assertions.assertTrue(data.getLocationCount() > 0);
+        Assertions.assertNotNull(data.randomSurname(new Random(1)));
+    }
+
+    @Test
+    @DisplayName("Generated IDs are compact and time ordered")
+    public void testIdGenerator() throws InterruptedException {
+        String first = IdGenerator.next();
+        Thread.sleep(2);
+        String second = IdGenerator.next();
+
+        Assertions.assertEquals(IdGenerator.LENGTH, first.length());
+        Assertions.assertTrue(first.compareTo(second) < 0);
+        Assertions.assertNotEquals(IdGenerator.next(), IdGenerator.next());
+    }
 }